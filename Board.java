@@ -0,0 +1,368 @@
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Compact model of one game board.
+// Every per-cell fact lives in a flat long[] with no per-row objects:
+// one bit each for bombs, revealed cells and flags, and a 4-bit neighbor bomb count.
+// Rows are padded to whole words, so a row never shares a word with the next one.
+// Neighbor counts are filled in for the whole board at once ("computeCounts") or one cell at a time
+// ("storeCount"); a cell whose count is not stored yet is counted from the bombs whenever it is asked for.
+public class Board
+{
+    // Number of rows and columns.
+    private final int size;
+
+    // Words per row in the bit layers (64 cells per word) and in the count layer (16 cells per word).
+    private final int bitWordsPerRow;
+    private final int countWordsPerRow;
+
+    // bombs: cells that contain a bomb
+    // revealed: cells the player can see
+    // flags: cells the player has marked
+    // counts: number of bombs around each cell, 4 bits per cell
+    // counted: cells whose entry in counts is filled in (all of them once "allCounted" is set)
+    private final long[] bombs;
+    private final long[] revealed;
+    private final long[] flags;
+    private final long[] counts;
+    private final long[] counted;
+    private boolean allCounted = false;
+
+
+    // Creates an empty board with no bombs, nothing revealed and no flags.
+    public Board(int size)
+    {
+        this.size = size;
+        this.bitWordsPerRow = (size + 63) >>> 6;
+        this.countWordsPerRow = (size + 15) >>> 4;
+
+        bombs = new long[size * bitWordsPerRow];
+        revealed = new long[size * bitWordsPerRow];
+        flags = new long[size * bitWordsPerRow];
+        counts = new long[size * countWordsPerRow];
+        counted = new long[size * bitWordsPerRow];
+    }
+
+
+    public int getSize()
+    {
+        return size;
+    }
+
+
+    // Heap taken by the cell data of a board of the given size, e.g. to budget how many boards to keep around.
+    public static long bytesFor(int size)
+    {
+        long bitWords = (long) size * ((size + 63) >>> 6);
+        long countWords = (long) size * ((size + 15) >>> 4);
+        return (4 * bitWords + countWords) * Long.BYTES;
+    }
+
+
+    // Index of the word that holds the given cell in a bit layer.
+    private int bitWord(int row, int col)
+    {
+        return row * bitWordsPerRow + (col >>> 6);
+    }
+
+
+    public boolean isBomb(int row, int col)
+    {
+        return (bombs[bitWord(row, col)] & (1L << col)) != 0;
+    }
+
+
+    public void setBomb(int row, int col)
+    {
+        bombs[bitWord(row, col)] |= 1L << col;
+    }
+
+
+    public boolean isRevealed(int row, int col)
+    {
+        return (revealed[bitWord(row, col)] & (1L << col)) != 0;
+    }
+
+
+    public void setRevealed(int row, int col)
+    {
+        revealed[bitWord(row, col)] |= 1L << col;
+    }
+
+
+    public boolean isFlagged(int row, int col)
+    {
+        return (flags[bitWord(row, col)] & (1L << col)) != 0;
+    }
+
+
+    public void setFlagged(int row, int col, boolean flagged)
+    {
+        if (flagged) flags[bitWord(row, col)] |= 1L << col;
+        else flags[bitWord(row, col)] &= ~(1L << col);
+    }
+
+
+    // Returns the number of bombs around the cell (0 to 8).
+    // A count that is not stored yet is worked out from the bombs, without storing it, so readers never write.
+    public int getCount(int row, int col)
+    {
+        if (!allCounted && (counted[bitWord(row, col)] & (1L << col)) == 0) return neighborBombs(row, col);
+
+        int shift = (col & 15) << 2;
+        return (int) (counts[row * countWordsPerRow + (col >>> 4)] >>> shift) & 0xF;
+    }
+
+
+    public void setCount(int row, int col, int count)
+    {
+        int word = row * countWordsPerRow + (col >>> 4);
+        int shift = (col & 15) << 2;
+        counts[word] = (counts[word] & ~(0xFL << shift)) | ((long) count << shift);
+        counted[bitWord(row, col)] |= 1L << col;
+    }
+
+
+    // Works out the count of one cell and keeps it, e.g. when the cell is revealed.
+    public void storeCount(int row, int col)
+    {
+        if (allCounted || (counted[bitWord(row, col)] & (1L << col)) != 0) return;
+        setCount(row, col, neighborBombs(row, col));
+    }
+
+
+    // Bombs in the 3x3 area around the cell, not counting the cell itself.
+    private int neighborBombs(int row, int col)
+    {
+        int bombCount = 0;
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, size - 1); r++)
+        {
+            for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, size - 1); c++)
+            {
+                if ((r != row || c != col) && isBomb(r, c)) bombCount++;
+            }
+        }
+        return bombCount;
+    }
+
+
+    // Boards with fewer cells than this are counted on the calling thread,
+    // larger ones are split into row bands of about this many cells for the fork-join pool.
+    private static final int PARALLEL_CELLS = 1 << 16;
+
+    // Fills in the neighbor bomb count of every cell (bomb cells included) from the bomb layer.
+    public void computeCounts()
+    {
+        if ((long) size * size < PARALLEL_CELLS) countRows(0, size);
+        else ForkJoinPool.commonPool().invoke(new CountTask(this, 0, size));
+        allCounted = true;
+    }
+
+
+    // Splits the rows in half until a band is small enough, then counts it.
+    // Static with the board as a field, so the task (serializable like every ForkJoinTask) drags no hidden outer reference.
+    private static final class CountTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Board board;
+        private final int from;
+        private final int to;
+
+        CountTask(Board board, int from, int to)
+        {
+            this.board = board;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if ((long) (to - from) * board.size <= PARALLEL_CELLS || to - from < 2)
+            {
+                board.countRows(from, to);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new CountTask(board, from, middle), new CountTask(board, middle, to));
+        }
+    }
+
+
+    // Counts rows [from, to) with a sliding three-row window.
+    // The bomb bits of the rows above, at and below the current row are expanded into byte rows padded
+    // with a zero column on each side, summed vertically, and then summed over three columns.
+    // There are no bounds checks per cell, and the plain loops are easy for the JIT to vectorize.
+    // Every row has its own count words, so bands can be counted in parallel.
+    private void countRows(int from, int to)
+    {
+        int width = size + 2;
+        byte[] above = new byte[width];
+        byte[] current = new byte[width];
+        byte[] below = new byte[width];
+        byte[] columns = new byte[width];
+
+        if (from > 0) expandBombs(from - 1, above);
+        expandBombs(from, current);
+
+        for (int row = from; row < to; row++)
+        {
+            if (row + 1 < size) expandBombs(row + 1, below);
+            else Arrays.fill(below, (byte) 0);
+
+            // Bombs in each column of the three-row window.
+            for (int c = 0; c < width; c++)
+            {
+                columns[c] = (byte) (above[c] + current[c] + below[c]);
+            }
+
+            // Three neighboring columns, minus the cell itself, packed 16 counts per word.
+            int base = row * countWordsPerRow;
+            for (int word = 0; word < countWordsPerRow; word++)
+            {
+                long packed = 0;
+                int start = word << 4;
+                int end = Math.min(start + 16, size);
+                for (int col = start; col < end; col++)
+                {
+                    long count = columns[col] + columns[col + 1] + columns[col + 2] - current[col + 1];
+                    packed |= count << ((col & 15) << 2);
+                }
+                counts[base + word] = packed;
+            }
+
+            // Slide the window down by one row.
+            byte[] recycled = above;
+            above = current;
+            current = below;
+            below = recycled;
+        }
+    }
+
+
+    // Writes the bombs of one row into a padded byte row: cell col goes to index col + 1.
+    private void expandBombs(int row, byte[] target)
+    {
+        int base = row * bitWordsPerRow;
+        for (int col = 0; col < size; col++)
+        {
+            target[col + 1] = (byte) ((bombs[base + (col >>> 6)] >>> col) & 1);
+        }
+    }
+
+
+    // Words in each of the bomb, revealed and flag layers, e.g. to size a saved board.
+    public static long layerWords(int size)
+    {
+        return (long) size * ((size + 63) >>> 6);
+    }
+
+
+    // Copies the bomb, revealed and flag layers into a buffer, one whole layer after the other.
+    public void writeLayers(LongBuffer out)
+    {
+        out.put(bombs);
+        out.put(revealed);
+        out.put(flags);
+    }
+
+
+    // Reads layers written by "writeLayers" for a board of the same size.
+    // The counts are not stored with them; they are worked out from the bombs as they are needed.
+    public void readLayers(LongBuffer in)
+    {
+        in.get(bombs);
+        in.get(revealed);
+        in.get(flags);
+        Arrays.fill(counted, 0L);
+        allCounted = false;
+    }
+
+
+    // Number of bombs, of revealed cells and of flagged cells, counted a word at a time.
+    public int countBombs()
+    {
+        return countBits(bombs);
+    }
+
+
+    public int countRevealed()
+    {
+        return countBits(revealed);
+    }
+
+
+    public int countFlagged()
+    {
+        return countBits(flags);
+    }
+
+
+    private static int countBits(long[] layer)
+    {
+        int count = 0;
+        for (long word : layer) count += Long.bitCount(word);
+        return count;
+    }
+
+
+    // The first revealed column of a row at or after the given one, or -1 if there is none.
+    // Skips closed cells 64 at a time, so walking a board's revealed cells costs little more than there are of them.
+    public int nextRevealed(int row, int col)
+    {
+        if (col >= size) return -1;
+
+        int base = row * bitWordsPerRow;
+        int word = col >>> 6;
+        long bits = revealed[base + word] & (-1L << col);
+        while (bits == 0)
+        {
+            if (++word == bitWordsPerRow) return -1;
+            bits = revealed[base + word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+
+    // The first column of a row at or after the given one whose cell is safe, closed and not flagged, or -1 if there is
+    // none. Looks at 64 cells at a time, like "nextRevealed".
+    public int nextClosedSafe(int row, int col)
+    {
+        if (col >= size) return -1;
+
+        int base = row * bitWordsPerRow;
+        int word = col >>> 6;
+        long bits = ~(bombs[base + word] | revealed[base + word] | flags[base + word]) & (-1L << col);
+        while (true)
+        {
+            // Columns past the end of the row are padding, never cells.
+            if (word == bitWordsPerRow - 1 && (size & 63) != 0) bits &= (1L << size) - 1;
+            if (bits != 0) return (word << 6) + Long.numberOfTrailingZeros(bits);
+
+            if (++word == bitWordsPerRow) return -1;
+            bits = ~(bombs[base + word] | revealed[base + word] | flags[base + word]);
+        }
+    }
+
+
+    // Closes every cell and removes every flag, keeping bombs and counts.
+    public void clearView()
+    {
+        Arrays.fill(revealed, 0L);
+        Arrays.fill(flags, 0L);
+    }
+
+
+    // Removes every bomb and forgets every stored count, keeping what the player sees.
+    // Stale entries stay in the count layer; they are overwritten before they are read again.
+    public void clearBombs()
+    {
+        Arrays.fill(bombs, 0L);
+        Arrays.fill(counted, 0L);
+        allCounted = false;
+    }
+}
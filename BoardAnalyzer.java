@@ -0,0 +1,307 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Measures how hard a board is, with the numbers players compare boards by:
+//   - 3BV: the fewest clicks that clear the board. One per opening, plus one per numbered cell that no opening reveals.
+//   - openings: areas of empty cells that a single click opens, numbered border included.
+//   - islands: groups of touching numbered cells that no opening reaches; every cell of them takes a click of its own.
+//   - forced guesses: how often the solver runs out of forced moves and has to guess, if every guess is lucky.
+// The board is built again from its seed on the analyzer's own engine, so a game in progress is never touched.
+// An analyzer is not thread-safe; the batch mode gives every task its own, like the simulator does.
+public class BoardAnalyzer
+{
+    // The numbers of one board, and what it takes to build the board again ("GameEngine.newGame").
+    public static final class Report
+    {
+        public final int size;
+        public final int numBombs;
+        public final long boardSeed;
+        public final int startRow;
+        public final int startCol;
+
+        public final int threeBV;
+        public final int openings;
+        public final int islands;
+        public final int forcedGuesses;
+
+        // Time the analysis took, board generation included.
+        public final long nanos;
+
+        Report(int size, int numBombs, long boardSeed, int startRow, int startCol,
+               int threeBV, int openings, int islands, int forcedGuesses, long nanos)
+        {
+            this.size = size;
+            this.numBombs = numBombs;
+            this.boardSeed = boardSeed;
+            this.startRow = startRow;
+            this.startCol = startCol;
+            this.threeBV = threeBV;
+            this.openings = openings;
+            this.islands = islands;
+            this.forcedGuesses = forcedGuesses;
+            this.nanos = nanos;
+        }
+    }
+
+
+    // Boards that take fewer clicks first.
+    public static final Comparator<Report> FEWEST_CLICKS_FIRST = Comparator.comparingInt(report -> report.threeBV);
+
+    // Boards per batch task. A preset board takes well under a millisecond, so this keeps scheduling cheap.
+    private static final int BATCH_BOARDS = 100;
+
+    // Boards rated to pick one rated board. Enough for the quartiles of 3BV to be stable.
+    private static final int PICK_BOARDS = 1000;
+
+    private final GameEngine engine = new GameEngine();
+    private final Solver solver = new Solver();
+
+    // Numbered cells that no opening reaches, while the islands are counted. One entry per cell.
+    private boolean[] isolated = new boolean[0];
+    private int[] fillStack = new int[64];
+
+
+    // Analyzes the board an engine is playing on now, e.g. right after "setBoardData".
+    public Report analyze(GameEngine source)
+    {
+        if (source.isBoardPending()) throw new IllegalStateException("The board has no bombs yet");
+
+        return analyze(source.getSize(), source.getNumBombs(), source.getBoardSeed(), source.getStartRow(), source.getStartCol());
+    }
+
+
+    // Analyzes the board a board seed and start cell generate (start row and column -1 for none).
+    // The forced guesses are counted from the start of the game: from the open start cell if there is one,
+    // otherwise from a closed board, whose first click is not counted since every game has to make it.
+    public Report analyze(int size, int numBombs, long boardSeed, int startRow, int startCol)
+    {
+        if ((long) size * size > OpeningRegions.MAX_CELLS) throw new IllegalArgumentException("Board too big to analyze: " + size);
+
+        long begin = System.nanoTime();
+        engine.newGame(size, numBombs, 0, boardSeed, startRow, startCol);
+        Board board = engine.getBoard();
+
+        int openings = engine.getOpeningCount();
+        int isolatedCells = markIsolated(board, size);
+        int islands = countIslands(size);
+        int forcedGuesses = countForcedGuesses(board, size);
+
+        return new Report(size, numBombs, boardSeed, startRow, startCol, openings + isolatedCells, openings, islands,
+                forcedGuesses, System.nanoTime() - begin);
+    }
+
+
+    // Marks every numbered cell with no empty neighbor, and returns how many there are.
+    private int markIsolated(Board board, int size)
+    {
+        if (isolated.length != size * size) isolated = new boolean[size * size];
+
+        int count = 0;
+        for (int i = 0; i < size; i++)
+        {
+            for (int j = 0; j < size; j++)
+            {
+                boolean numbered = !board.isBomb(i, j) && board.getCount(i, j) != 0;
+                isolated[i * size + j] = numbered && !touchesEmpty(board, size, i, j);
+                if (isolated[i * size + j]) count++;
+            }
+        }
+        return count;
+    }
+
+
+    private static boolean touchesEmpty(Board board, int size, int row, int col)
+    {
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, size - 1); r++)
+        {
+            for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, size - 1); c++)
+            {
+                if (!board.isBomb(r, c) && board.getCount(r, c) == 0) return true;
+            }
+        }
+        return false;
+    }
+
+
+    // Counts the groups of marked cells, diagonal neighbors included. Clears the marks on the way.
+    private int countIslands(int size)
+    {
+        int islands = 0;
+        for (int cell = 0; cell < size * size; cell++)
+        {
+            if (!isolated[cell]) continue;
+
+            islands++;
+            isolated[cell] = false;
+            int top = 0;
+            fillStack[top++] = cell;
+            while (top > 0)
+            {
+                int current = fillStack[--top];
+                int row = current / size;
+                int col = current % size;
+                for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, size - 1); r++)
+                {
+                    for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, size - 1); c++)
+                    {
+                        if (!isolated[r * size + c]) continue;
+
+                        isolated[r * size + c] = false;
+                        if (top == fillStack.length) fillStack = Arrays.copyOf(fillStack, top * 2);
+                        fillStack[top++] = r * size + c;
+                    }
+                }
+            }
+        }
+        return islands;
+    }
+
+
+    // Lets the solver play the game with forced moves, and guesses for it whenever it is stuck.
+    // The guess is the first closed safe cell in row order, so it never loses and the count does not depend on luck.
+    // Cells before the cursor are revealed or bombs, and stay that way, so finding the next guess costs
+    // nothing extra over the whole game.
+    private int countForcedGuesses(Board board, int size)
+    {
+        solver.newGame(engine);
+
+        int guesses = 0;
+        int cursor = 0;
+        while (!engine.isFinished())
+        {
+            if (solver.stepWithoutGuessing() != null) continue;
+
+            while (board.isBomb(cursor / size, cursor % size) || board.isRevealed(cursor / size, cursor % size)) cursor++;
+
+            if (engine.getRevealedSafeCells() > 0) guesses++;
+            engine.reveal(cursor / size, cursor % size);
+        }
+        return guesses;
+    }
+
+
+    // Analyzes boards 0 .. boards - 1 of a seed on the given number of threads. Report i is always about
+    // the same board, however the work is split, so the same seed gives the same reports.
+    public static Report[] rate(int size, int numBombs, int startRow, int startCol, int boards, long seed, int threads)
+    {
+        Report[] reports = new Report[boards];
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try
+        {
+            List<ForkJoinTask<?>> batches = new ArrayList<>();
+            for (int first = 0; first < boards; first += BATCH_BOARDS)
+            {
+                int from = first;
+                int to = Math.min(boards, first + BATCH_BOARDS);
+                batches.add(pool.submit(() ->
+                {
+                    BoardAnalyzer analyzer = new BoardAnalyzer();
+                    for (int i = from; i < to; i++)
+                    {
+                        reports[i] = analyzer.analyze(size, numBombs, boardSeed(seed, i), startRow, startCol);
+                    }
+                }));
+            }
+
+            // Joining also makes the reports written by the tasks visible here.
+            for (ForkJoinTask<?> batch : batches) batch.join();
+            return reports;
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+
+    // Picks a board with the given rating: a batch of boards with the middle cell open is analyzed, the ones
+    // with the forced guesses the rating allows are sorted by 3BV, and the board at the rating's position is
+    // returned. If no board in the batch has the right number of guesses, all of them are used.
+    public static Report pick(int size, int numBombs, Rating rating, long seed)
+    {
+        Report[] reports = rate(size, numBombs, size / 2, size / 2, PICK_BOARDS, seed, Runtime.getRuntime().availableProcessors());
+
+        List<Report> allowed = new ArrayList<>();
+        for (Report report : reports)
+        {
+            if (rating.allows(report.forcedGuesses)) allowed.add(report);
+        }
+        if (allowed.isEmpty()) allowed.addAll(Arrays.asList(reports));
+
+        // The sort is stable, so boards with the same 3BV stay in seed order and the pick is repeatable.
+        allowed.sort(FEWEST_CLICKS_FIRST);
+        return allowed.get((int) Math.round(rating.getPosition() * (allowed.size() - 1)));
+    }
+
+
+    private static long boardSeed(long seed, int board)
+    {
+        return new SplittableRandom(seed + board).nextLong();
+    }
+
+
+    // Usage: analyze [boards per level] [threads] [seed]
+    // Rates boards of every preset level and prints the analysis speed and the spread of each metric.
+    public static void main(String[] args)
+    {
+        int boards;
+        int threads;
+        long seed;
+        try
+        {
+            boards = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+            threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+            seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+
+            if (boards < 1) throw new IllegalArgumentException("The number of boards must be at least 1: " + boards);
+            if (threads < 1) throw new IllegalArgumentException("The number of threads must be at least 1: " + threads);
+        }
+        catch (IllegalArgumentException e)
+        {
+            // Also catches NumberFormatException, for arguments that are not numbers.
+            System.err.println(e.getMessage());
+            System.err.println("Usage: analyze [boards per level] [threads] [seed]");
+            return;
+        }
+
+        System.out.println("Analyzing " + boards + " boards per level on " + threads + " threads (seed " + seed + ").");
+
+        for (Level level : Level.values())
+        {
+            long start = System.nanoTime();
+            Report[] reports = rate(level.getSize(), level.getNumBombs(), -1, -1, boards, seed, threads);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            long nanos = 0;
+            long openings = 0;
+            long islands = 0;
+            long guesses = 0;
+            int guessed = 0;
+            int[] threeBV = new int[boards];
+            for (int i = 0; i < boards; i++)
+            {
+                nanos += reports[i].nanos;
+                openings += reports[i].openings;
+                islands += reports[i].islands;
+                guesses += reports[i].forcedGuesses;
+                if (reports[i].forcedGuesses > 0) guessed++;
+                threeBV[i] = reports[i].threeBV;
+            }
+            Arrays.sort(threeBV);
+
+            System.out.println();
+            System.out.printf("%s (%dx%d, %d bombs): %.2f s, %.0f boards/sec, %.1f us per board%n", level.getTitle(),
+                    level.getSize(), level.getSize(), level.getNumBombs(), seconds, boards / seconds, nanos / 1e3 / boards);
+            System.out.printf("3BV: average %.1f, quartiles %d / %d / %d%n", (double) Arrays.stream(threeBV).asLongStream().sum() / boards,
+                    threeBV[boards / 4], threeBV[boards / 2], threeBV[boards * 3 / 4]);
+            System.out.printf("Openings: average %.2f, islands: average %.2f%n", (double) openings / boards, (double) islands / boards);
+            System.out.printf("Forced guesses: %.1f%% of boards need one, %.2f per board%n", 100.0 * guessed / boards,
+                    (double) guesses / boards);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Boards generated ahead of time, so starting or restarting a game does not wait for bombs, counts,
+// openings or the no-guess search. Lazy boards (bombs placed on the first click) are pooled too: blank,
+// but allocated. A background thread keeps a small queue of ready boards for every board
+// configuration that was asked for recently, the newest first.
+// The queues are bounded twice: each holds at most "depth" boards, and all of them together stay under a
+// memory budget. When everything is full the producer sleeps until a board is taken (back-pressure).
+// A configuration that has not been used for a while gives up its boards to newer ones, and boards too big
+// for the budget are never pooled; the engine simply builds those itself like it always did.
+public class BoardPool implements AutoCloseable
+{
+    // A generated board nobody has played on yet, the seed it was built from, and its openings
+    // (not built for lazy boards and boards too big to label).
+    public static final class Ready
+    {
+        public final Board board;
+        public final long boardSeed;
+        public final OpeningRegions openings;
+
+        Ready(Board board, long boardSeed, OpeningRegions openings)
+        {
+            this.board = board;
+            this.boardSeed = boardSeed;
+            this.openings = openings;
+        }
+    }
+
+
+    // Which boards a queue holds. Equal settings share a queue.
+    private static final class Config
+    {
+        final int size;
+        final int numBombs;
+        final boolean noGuess;
+        final boolean lazy;
+
+        // Boards ready to be taken, and whether the producer is building one more right now.
+        final ArrayDeque<Ready> boards = new ArrayDeque<>();
+        boolean building = false;
+
+        // Set when a board with these settings cannot be built (e.g. no no-guess board exists); never retried.
+        boolean failed = false;
+
+        Config(int size, int numBombs, boolean noGuess, boolean lazy)
+        {
+            this.size = size;
+            this.numBombs = numBombs;
+            this.noGuess = noGuess;
+            this.lazy = lazy;
+        }
+
+        // The board's cell data, plus its openings: several times the board itself, since they keep ints per cell.
+        long bytesPerBoard()
+        {
+            return Board.bytesFor(size) + (lazy ? 0 : OpeningRegions.bytesFor(size));
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Config)) return false;
+            Config other = (Config) o;
+            return size == other.size && numBombs == other.numBombs && noGuess == other.noGuess && lazy == other.lazy;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return ((size * 31 + numBombs) * 2 + (noGuess ? 1 : 0)) * 2 + (lazy ? 1 : 0);
+        }
+    }
+
+
+    // Configurations remembered at once; using another one forgets the least recently used.
+    private static final int MAX_CONFIGS = 4;
+
+    // Ready boards per configuration, and heap all pooled boards may take together.
+    private final int depth;
+    private final long maxBytes;
+
+    // Configurations in least recently used order. Guarded by "this", like every field below.
+    private final LinkedHashMap<Config, Config> configs = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Heap taken by the pooled boards, including the one being built.
+    private long pooledBytes = 0;
+
+    private boolean closed = false;
+
+    // Builds the boards, on the producer thread only.
+    private final GameEngine builder;
+    private final Thread producer;
+
+
+    // A pool with four boards per configuration, using at most a quarter of the heap (and never more than 256 MB).
+    public BoardPool()
+    {
+        this(4, Math.min(256L << 20, Runtime.getRuntime().maxMemory() / 4), new SplittableRandom().nextLong());
+    }
+
+
+    // A pool whose boards come from the given seed, in the order the producer happens to build them.
+    public BoardPool(int depth, long maxBytes, long seed)
+    {
+        if (depth < 1) throw new IllegalArgumentException("Pool depth must be at least 1: " + depth);
+
+        this.depth = depth;
+        this.maxBytes = maxBytes;
+        this.builder = new GameEngine(seed);
+
+        // A daemon thread: a pool that is never closed does not keep the program alive.
+        producer = new Thread(this::produce, "board-pool");
+        producer.setDaemon(true);
+        producer.setPriority(Thread.MIN_PRIORITY);
+        producer.start();
+    }
+
+
+    // Takes a ready board with these settings, or returns null if there is none yet.
+    // Either way the configuration becomes the most recent one, so the producer fills it next.
+    public synchronized Ready take(int size, int numBombs, boolean noGuess, boolean lazy)
+    {
+        if (closed) return null;
+
+        Config config = use(size, numBombs, noGuess, lazy);
+        Ready ready = config.boards.poll();
+        if (ready != null) pooledBytes -= config.bytesPerBoard();
+
+        notifyAll();
+        return ready;
+    }
+
+
+    // Starts filling the queue for these settings without taking anything, e.g. for the preset levels
+    // while the player is still in the menu.
+    public synchronized void prepare(int size, int numBombs, boolean noGuess, boolean lazy)
+    {
+        if (closed) return;
+
+        use(size, numBombs, noGuess, lazy);
+        notifyAll();
+    }
+
+
+    // Number of ready boards with these settings.
+    public synchronized int available(int size, int numBombs, boolean noGuess, boolean lazy)
+    {
+        Config config = configs.get(new Config(size, numBombs, noGuess, lazy));
+        return config != null ? config.boards.size() : 0;
+    }
+
+
+    // Stops the producer and drops every pooled board.
+    @Override
+    public void close()
+    {
+        synchronized (this)
+        {
+            if (closed) return;
+
+            closed = true;
+            configs.clear();
+            pooledBytes = 0;
+            notifyAll();
+        }
+        producer.interrupt();
+    }
+
+
+    // Finds or adds the queue for these settings and marks it as the most recently used.
+    private Config use(int size, int numBombs, boolean noGuess, boolean lazy)
+    {
+        Config key = new Config(size, numBombs, noGuess, lazy);
+        Config config = configs.get(key);
+        if (config != null) return config;
+
+        configs.put(key, key);
+        if (configs.size() > MAX_CONFIGS)
+        {
+            Iterator<Config> oldest = configs.values().iterator();
+            Config evicted = oldest.next();
+            oldest.remove();
+            pooledBytes -= evicted.boards.size() * evicted.bytesPerBoard();
+        }
+        return key;
+    }
+
+
+    // The producer loop: build a board for the most recent configuration that wants one, or wait.
+    private void produce()
+    {
+        while (true)
+        {
+            Config config = null;
+            synchronized (this)
+            {
+                while (!closed && (config = nextWork()) == null)
+                {
+                    try
+                    {
+                        wait();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        // "close" interrupts; the loop condition sees it.
+                    }
+                }
+                if (closed) return;
+
+                config.building = true;
+                pooledBytes += config.bytesPerBoard();
+            }
+
+            Ready ready = null;
+            try
+            {
+                ready = builder.buildBoard(config.size, config.numBombs, config.noGuess, config.lazy);
+            }
+            catch (RuntimeException e)
+            {
+                // The engine that wants this board will build it itself and report the problem.
+            }
+
+            synchronized (this)
+            {
+                config.building = false;
+
+                // The configuration may have been evicted, or the pool closed, while the board was built.
+                if (ready != null && !closed && configs.get(config) == config) config.boards.add(ready);
+                else
+                {
+                    if (!closed) pooledBytes -= config.bytesPerBoard();
+                    if (ready == null) config.failed = true;
+                }
+            }
+        }
+    }
+
+
+    // The most recently used configuration with room for one more board, or null if all of them are full.
+    // Boards of older configurations are dropped when the newer one would not fit the budget otherwise.
+    private Config nextWork()
+    {
+        List<Config> newestFirst = new ArrayList<>(configs.values());
+        for (int i = newestFirst.size() - 1; i >= 0; i--)
+        {
+            Config config = newestFirst.get(i);
+            if (config.failed || config.building || config.boards.size() >= depth) continue;
+
+            long bytes = config.bytesPerBoard();
+            if (bytes > maxBytes) continue;
+
+            for (int j = 0; j < i && pooledBytes + bytes > maxBytes; j++)
+            {
+                Config older = newestFirst.get(j);
+                while (!older.boards.isEmpty() && pooledBytes + bytes > maxBytes)
+                {
+                    older.boards.poll();
+                    pooledBytes -= older.bytesPerBoard();
+                }
+            }
+
+            if (pooledBytes + bytes <= maxBytes) return config;
+        }
+        return null;
+    }
+}
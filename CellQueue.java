@@ -0,0 +1,46 @@
+import java.util.Arrays;
+
+// A stack of flat cell indices (row * size + col) that holds every cell at most once.
+// Used as a work list by the solver and the probability engine: pushing a cell that is already waiting does nothing.
+class CellQueue
+{
+    private int[] cells = new int[64];
+    private int count;
+
+    // One bit per cell of the board, set while the cell is waiting.
+    private long[] queued = new long[0];
+
+
+    // Empties the queue for a board with the given number of cells.
+    void reset(int boardCells)
+    {
+        int words = (boardCells + 63) >>> 6;
+        if (queued.length != words) queued = new long[words];
+        else Arrays.fill(queued, 0);
+        count = 0;
+    }
+
+
+    boolean isEmpty()
+    {
+        return count == 0;
+    }
+
+
+    void push(int cell)
+    {
+        if ((queued[cell >>> 6] & (1L << cell)) != 0) return;
+
+        queued[cell >>> 6] |= 1L << cell;
+        if (count == cells.length) cells = Arrays.copyOf(cells, count * 2);
+        cells[count++] = cell;
+    }
+
+
+    int pop()
+    {
+        int cell = cells[--count];
+        queued[cell >>> 6] &= ~(1L << cell);
+        return cell;
+    }
+}
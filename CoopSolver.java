@@ -0,0 +1,301 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Solver threads that play one SharedBoard together, the co-op mode ("java Display coop").
+// They see only what a player sees: revealed cells with their numbers, and flags. Nobody looks at the bombs.
+// The game is played in passes. In a pass every thread takes rows off a shared counter and applies the single cell
+// rule of Solver to the numbers in them: a number that touches all its flags has only safe cells left around it,
+// and one with exactly as many closed cells as bombs left has only bombs left. Threads work on neighboring rows at
+// the same time, and their reveals and flood fills meet on the shared board.
+// Flags are only placed on proven bombs and never removed, and the visible state only ever moves forward, so a
+// rule applied to a slightly old view is still right. A pass that changed nothing ends with one guess: the closed
+// cell whose numbers give it the smallest chance of a bomb, or a random closed cell if no number touches one.
+public class CoopSolver
+{
+    private final SharedBoard shared;
+    private final int size;
+    private final int threads;
+
+    // Guesses are made by the thread that ends a pass, one at a time, so they share one player and one random source.
+    private final SharedBoard.Player guesser;
+    private final SplittableRandom random;
+
+    private final AtomicInteger nextRow = new AtomicInteger();
+    private final AtomicBoolean progress = new AtomicBoolean();
+    private volatile boolean done = false;
+
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder revealed = new LongAdder();
+    private int passes = 0;
+    private int guesses = 0;
+
+
+    // A co-op game on a shared board whose start cell (row and column) is known to be safe, as in no-guess mode.
+    public CoopSolver(SharedBoard shared, int threads, int startRow, int startCol, long seed)
+    {
+        if (threads < 1) throw new IllegalArgumentException("The number of threads must be at least 1: " + threads);
+
+        this.shared = shared;
+        this.size = shared.getSize();
+        this.threads = threads;
+        this.guesser = shared.newPlayer();
+        this.random = new SplittableRandom(seed);
+
+        count(guesser.reveal(startRow, startCol));
+    }
+
+
+    // Plays until the board is cleared or a guess hits a bomb. Returns true if the board was cleared.
+    public boolean play() throws InterruptedException
+    {
+        CyclicBarrier endOfPass = new CyclicBarrier(threads, this::endPass);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++)
+        {
+            workers[t] = new Thread(() -> work(endOfPass), "coop-" + t);
+            workers[t].start();
+        }
+        for (Thread worker : workers) worker.join();
+        return shared.isPlayerWin();
+    }
+
+
+    public int getPasses()
+    {
+        return passes;
+    }
+
+
+    public int getGuesses()
+    {
+        return guesses;
+    }
+
+
+    public long getMoves()
+    {
+        return moves.sum();
+    }
+
+
+    public long getRevealed()
+    {
+        return revealed.sum();
+    }
+
+
+    private void work(CyclicBarrier endOfPass)
+    {
+        SharedBoard.Player player = shared.newPlayer();
+        int[] closed = new int[8];
+        try
+        {
+            while (!done)
+            {
+                for (int row = nextRow.getAndIncrement(); row < size && !shared.isFinished(); row = nextRow.getAndIncrement())
+                {
+                    if (solveRow(player, row, closed)) progress.set(true);
+                }
+                endOfPass.await();
+            }
+        }
+        catch (InterruptedException | BrokenBarrierException e)
+        {
+            // The game is abandoned.
+        }
+    }
+
+
+    // Runs once per pass, on the last thread to arrive, while the others wait.
+    private void endPass()
+    {
+        passes++;
+        if (!shared.isFinished() && !progress.get()) guess();
+        if (shared.isFinished()) done = true;
+
+        progress.set(false);
+        nextRow.set(0);
+    }
+
+
+    // Applies the single cell rule to every number in the row. Returns true if it changed the board.
+    private boolean solveRow(SharedBoard.Player player, int row, int[] closed)
+    {
+        boolean changed = false;
+        for (int col = 0; col < size; col++)
+        {
+            int number = shared.getCount(row, col);
+            if (number <= 0) continue; // Closed, or empty: the fill opens everything around empty cells.
+
+            int flags = 0;
+            int count = 0;
+            for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, size - 1); r++)
+            {
+                for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, size - 1); c++)
+                {
+                    if (shared.isFlagged(r, c)) flags++;
+                    else if (!shared.isRevealed(r, c)) closed[count++] = r * size + c;
+                }
+            }
+            if (count == 0) continue;
+
+            boolean safe = flags == number;
+            if (!safe && flags + count != number) continue;
+
+            for (int i = 0; i < count; i++)
+            {
+                int r = closed[i] / size;
+                int c = closed[i] % size;
+                MoveResult result = safe ? player.reveal(r, c) : player.mark(r, c);
+                changed |= count(result);
+            }
+        }
+        return changed;
+    }
+
+
+    // Guesses the closed cell least likely to be a bomb by what its numbers say, each number spreading the bombs it
+    // still misses evenly over its closed cells. A cell no number touches is only tried when no number touches any.
+    private void guess()
+    {
+        guesses++;
+
+        int best = -1;
+        double bestChance = 2;
+        for (int row = 0; row < size; row++)
+        {
+            for (int col = 0; col < size; col++)
+            {
+                int number = shared.getCount(row, col);
+                if (number <= 0) continue;
+
+                int flags = 0;
+                int count = 0;
+                int pick = -1;
+                for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, size - 1); r++)
+                {
+                    for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, size - 1); c++)
+                    {
+                        if (shared.isFlagged(r, c)) flags++;
+                        else if (!shared.isRevealed(r, c) && (count++ == 0 || random.nextInt(count) == 0)) pick = r * size + c;
+                    }
+                }
+                if (count == 0) continue;
+
+                double chance = (double) (number - flags) / count;
+                if (chance < bestChance)
+                {
+                    bestChance = chance;
+                    best = pick;
+                }
+            }
+        }
+
+        if (best < 0) best = randomClosedCell();
+        if (best >= 0) count(guesser.reveal(best / size, best % size));
+    }
+
+
+    // A random cell that is neither revealed nor flagged, or -1 if there is none.
+    private int randomClosedCell()
+    {
+        int start = random.nextInt(size * size);
+        for (int i = 0; i < size * size; i++)
+        {
+            int cell = (start + i) % (size * size);
+            if (!shared.isRevealed(cell / size, cell % size) && !shared.isFlagged(cell / size, cell % size)) return cell;
+        }
+        return -1;
+    }
+
+
+    // Counts a move that changed the board. Returns true if it did.
+    private boolean count(MoveResult result)
+    {
+        switch (result.getOutcome())
+        {
+            case REVEALED:
+            case WON:
+            case LOST:
+            case FLAGGED:
+                moves.increment();
+                revealed.add(result.getRevealedCount());
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+
+    // Usage: coop [size] [bomb density] [threads] [seed]
+    // Plays one board with 1, 2, 4, ... up to the given number of solver threads, a fresh shared game each time,
+    // and prints how each game went. Guesses depend on how far the threads got, so games can end differently.
+    public static void main(String[] args) throws InterruptedException
+    {
+        int size;
+        double density;
+        int maxThreads;
+        long seed;
+        GameEngine engine;
+        try
+        {
+            size = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+            density = args.length > 1 ? Double.parseDouble(args[1]) : 0.12;
+            maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+            seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+
+            if (size < 3 || size > 8192) throw new IllegalArgumentException("The board size must be between 3 and 8192: " + size);
+            if (!(density >= 0 && density < 1)) throw new IllegalArgumentException("The bomb density must be at least 0 and below 1: " + density);
+            if (maxThreads < 1) throw new IllegalArgumentException("The number of threads must be at least 1: " + maxThreads);
+
+            // The start cell's area is kept free of bombs, so the first move opens it safely.
+            engine = new GameEngine(seed);
+            engine.newGame(size, (int) Math.round((double) size * size * density), 0, seed, size / 2, size / 2);
+        }
+        catch (IllegalArgumentException e)
+        {
+            // Also catches NumberFormatException, for arguments that are not numbers.
+            System.err.println(e.getMessage());
+            System.err.println("Usage: coop [size] [bomb density] [threads] [seed]");
+            return;
+        }
+
+        Board board = engine.getBoard();
+        System.out.println("Playing a " + size + "x" + size + " board with " + engine.getNumBombs() + " bombs together (seed " + seed + ").");
+
+        for (int threads = 1; threads <= maxThreads; threads = threads < maxThreads ? Math.min(threads * 2, maxThreads) : threads + 1)
+        {
+            SharedBoard shared = new SharedBoard(board);
+            CoopSolver game = new CoopSolver(shared, threads, size / 2, size / 2, seed);
+
+            long start = System.nanoTime();
+            boolean won = game.play();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("%d threads: %s in %.3f s, %d moves, %d cells revealed, %d passes, %d guesses, %s%n", threads,
+                    won ? "cleared" : "lost", seconds, game.getMoves(), game.getRevealed(), game.getPasses(), game.getGuesses(),
+                    verify(shared, board));
+        }
+    }
+
+
+    // The referee, who may look at the bombs: every flag is on a bomb, and a cleared board has every safe cell open.
+    private static String verify(SharedBoard shared, Board board)
+    {
+        int size = board.getSize();
+        for (int row = 0; row < size; row++)
+        {
+            for (int col = 0; col < size; col++)
+            {
+                if (shared.isFlagged(row, col) && !board.isBomb(row, col)) return "FAILED: flag on a safe cell at (" + (row + 1) + ',' + (col + 1) + ')';
+                if (shared.isPlayerWin() && !board.isBomb(row, col) && !shared.isRevealed(row, col)) return "FAILED: closed safe cell at (" + (row + 1) + ',' + (col + 1) + ')';
+            }
+        }
+        return "ok";
+    }
+}
@@ -1,3 +1,5 @@
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Random;
 import java.util.Scanner;
 
@@ -34,10 +36,8 @@ public class Data {
     public static final String BOLD = "\u001B[1m";
 
 
-    // userViewBoard: The board shown to the player, with revealed and closed cells
-    // boardData: The actual game board, with bombs and empty spaces
-    private char[][] userViewBoard;
-    private char[][] boardData;
+    // The rules and the board of the current game. Everything in this class is console input and output around it.
+    private final GameEngine engine = new GameEngine();
 
 
     // closedSymbol: Represents a closed (unrevealed) cell
@@ -49,6 +49,79 @@ public class Data {
     private char bombSymbol = '*';
     private char flagSymbol = 'F';
 
+    // Draws the board frames to the console, using the symbols above.
+    private final FrameRenderer renderer = new FrameRenderer(FrameRenderer.stdout(), closedSymbol, emptySymbol, bombSymbol, flagSymbol);
+
+    // Revealed share of every block of the board, for the optional minimap under the viewport.
+    private final Minimap minimap = new Minimap();
+
+    // Makes one move for the player on request ('A'). It follows every reveal, so it is ready at any point of a game.
+    private final Solver solver = new Solver();
+
+    // Chance of a bomb under every closed cell, for hints and for picking the cell a reveal boost opens.
+    private final ProbabilityEngine probabilities = new ProbabilityEngine(engine);
+
+    // Exact chances get expensive on huge boards; above this size boosts pick a random safe cell and 'H' is off.
+    private static final int PROBABILITY_MAX_SIZE = 256;
+
+    // Builds boards in the background, so starting and restarting a game does not wait for the board.
+    private final BoardPool boardPool = new BoardPool();
+
+    // Boards wider than this many columns are shown through the viewport when a game starts.
+    private static final int VIEWPORT_THRESHOLD = 40;
+
+    // Every game is recorded into this file, so it can be played back ("java Display replay").
+    // Set -Dminesweeper.journal= (empty) to record nothing.
+    private static final String JOURNAL_FILE = System.getProperty("minesweeper.journal", "minesweeper.journal");
+
+    // The game saved with 'S' during a game and loaded with 'L' in the menu.
+    private static final Path SAVE_FILE = Path.of(System.getProperty("minesweeper.save", "minesweeper.save"));
+
+
+    public Data()
+    {
+        // Keep the minimap and the differential renderer up to date with every changed cell.
+        engine.addCellListener(new GameEngine.CellListener()
+        {
+            @Override
+            public void cellRevealed(int row, int col)
+            {
+                minimap.cellRevealed(row, col);
+                renderer.markDirty(row, col);
+            }
+
+            @Override
+            public void cellFlagChanged(int row, int col)
+            {
+                renderer.markDirty(row, col);
+            }
+        });
+
+        // The player sees the bombs the solver proved, as flags.
+        solver.setFlagBombs(true);
+        solver.attach(engine);
+
+        // The first cell the player opens is never a bomb: bombs are placed around it.
+        engine.setFirstClickSafe(true);
+
+        // Have boards for the preset levels ready by the time the player picks one.
+        engine.setBoardPool(boardPool);
+        for (Level level : Level.values()) boardPool.prepare(level.getSize(), level.getNumBombs(), false, true);
+
+        // Record every game, so a bad one can be played back move by move.
+        if (!JOURNAL_FILE.isEmpty())
+        {
+            try
+            {
+                engine.setJournal(new MoveJournal(Path.of(JOURNAL_FILE)));
+            }
+            catch (IOException e)
+            {
+                System.out.println(RED + "Games are not recorded: " + e.getMessage() + RESET);
+            }
+        }
+    }
+
     // Sets the symbol for closed cells.
     public void setClosedSymbol(char closedSymbol)
     {
@@ -57,6 +130,7 @@ public class Data {
             System.out.println(RED + "Invalid symbol! This symbol is not allowed." + RESET);
         } else {
             this.closedSymbol = closedSymbol;
+            renderer.setSymbols(closedSymbol, emptySymbol, bombSymbol, flagSymbol);
         }
     }
 
@@ -69,6 +143,7 @@ public class Data {
             System.out.println(RED + "Invalid symbol! This symbol is not allowed." + RESET);
         } else {
             this.emptySymbol = emptySymbol;
+            renderer.setSymbols(closedSymbol, emptySymbol, bombSymbol, flagSymbol);
         }
     }
 
@@ -80,6 +155,7 @@ public class Data {
             System.out.println(RED + "Invalid symbol! This symbol is not allowed." + RESET);
         } else {
             this.bombSymbol = bombSymbol;
+            renderer.setSymbols(closedSymbol, emptySymbol, bombSymbol, flagSymbol);
         }
     }
 
@@ -111,12 +187,16 @@ public class Data {
     // Allows the player to start, change settings, view instructions, or quit.
     public void menu()
     {
+        // The menu scrolls normally, even if a game kept its board fixed at the top of the screen.
+        renderer.releaseScreen();
+
         while (true) {
             // Display the main menu with color formatting
             System.out.println(BG_BLACK + CYAN + BOLD + " Welcome to minesweeper!" + RESET);
             System.out.println("Enter 'S' to start game.");
             System.out.println("Enter 'C' to change settings.");
             System.out.println("Enter 'I' to see gameInstructions.");
+            System.out.println("Enter 'L' to load the saved game.");
             System.out.println("Enter 'Q' to exit game.");
 
             // Get user input and normalize character.
@@ -142,9 +222,17 @@ public class Data {
                     System.out.println();
                     continue; // Go back to the menu.
 
+                case 'L':
+                case 'l':
+                    input.nextLine(); // Clear the buffer.
+                    if (!loadGame()) continue; // Nothing to play, show the menu again.
+                    break;
+
                 case 'Q':
                 case 'q':
-                    return; // Exit the menu loop and terminate the method.
+                    // The menu is also opened from inside a game, so returning would go back to that game.
+                    quit();
+                    return;
 
                 default:
                     System.out.println(RED + "Invalid choice!" + RESET);
@@ -155,24 +243,317 @@ public class Data {
     }
 
 
+    // Ends the program. Only here are the board pool stopped and the last recorded moves written out: the menu is
+    // entered again from the game loops, so nothing shared may be closed while a game could still go on.
+    private void quit()
+    {
+        boardPool.close(); // Stop building boards in the background.
+        closeJournal();    // Write out the last recorded moves.
+        System.exit(0);
+    }
+
+
+    private void closeJournal()
+    {
+        MoveJournal journal = engine.getJournal();
+        if (journal == null) return;
+
+        journal.close();
+        if (journal.getFailure() != null) System.out.println(RED + "Some games were not recorded: " + journal.getFailure().getMessage() + RESET);
+    }
+
+
+    // Saves the game being played, so it can be loaded later from the menu.
+    public void saveGame()
+    {
+        long start = System.nanoTime();
+        try
+        {
+            GameSnapshot.save(SAVE_FILE, engine, new char[] {closedSymbol, emptySymbol, bombSymbol, flagSymbol});
+            System.out.printf(GREEN + "Game saved to %s in %.1f ms." + RESET + "%n", SAVE_FILE, (System.nanoTime() - start) / 1e6);
+        }
+        catch (IOException e)
+        {
+            System.out.println(RED + "The game could not be saved: " + e.getMessage() + RESET);
+        }
+    }
+
+
+    // Loads the saved game with its symbols and settings and goes on playing it.
+    // Returns false if there is no saved game or it cannot be read.
+    public boolean loadGame()
+    {
+        long start = System.nanoTime();
+        GameSnapshot snapshot;
+        try
+        {
+            snapshot = GameSnapshot.load(SAVE_FILE);
+            minimap.reset(snapshot.getSize());
+            snapshot.restore(engine);
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            System.out.println(RED + "No saved game could be loaded: " + e.getMessage() + RESET);
+            System.out.println();
+            return false;
+        }
+
+        size = snapshot.getSize();
+        numBombs = snapshot.getNumBombs();
+        revealBoosts = snapshot.getInitialRevealBoosts();
+        rating = null;
+        endless = false;
+
+        char[] symbols = snapshot.getSymbols();
+        closedSymbol = symbols[0];
+        emptySymbol = symbols[1];
+        bombSymbol = symbols[2];
+        flagSymbol = symbols[3];
+        renderer.setSymbols(closedSymbol, emptySymbol, bombSymbol, flagSymbol);
+
+        // The minimap only hears about new reveals, so it is told about the cells that are open already.
+        Board board = engine.getBoard();
+        for (int row = 0; row < size; row++)
+        {
+            for (int col = board.nextRevealed(row, 0); col >= 0; col = board.nextRevealed(row, col + 1)) minimap.cellRevealed(row, col);
+        }
+        System.out.printf(GREEN + "Game loaded in %.1f ms." + RESET + "%n", (System.nanoTime() - start) / 1e6);
+
+        renderer.setViewport(size > VIEWPORT_THRESHOLD);
+        renderer.moveViewport(0, 0, size);
+        renderer.invalidate();
+        printUserViewBoard();
+        displayGame();
+        return true;
+    }
+
+
     // Initializes and starts the Minesweeper game.
     public void startGame()
     {
         chooseLevel();
-        setUserViewBoard();
-        setBoardData();
+        if (endless)
+        {
+            playEndless();
+            return;
+        }
+
+        // Big boards would wrap in the terminal, so only a window of them is shown.
+        renderer.setViewport(size > VIEWPORT_THRESHOLD);
+        renderer.moveViewport(0, 0, size);
+
+        startBoard(false);
         printUserViewBoard();
         displayGame();
     }
 
 
+    // Endless mode: the game, whether it was picked, and the window of it that is on screen.
+    // The window is copied into a small fixed-size board, so the usual renderer can draw it.
+    private EndlessGame endlessGame;
+    private boolean endless = false;
+    private static final int ENDLESS_VIEW = 20;
+    private final Board endlessView = new Board(ENDLESS_VIEW);
+    private int endlessTop;
+    private int endlessLeft;
+
+    // About the density of the Hard level.
+    private static final int ENDLESS_BOMBS_PER_CHUNK = 640;
+
+
+    // Plays an endless game until the player hits a bomb or quits.
+    public void playEndless()
+    {
+        if (endlessGame != null) endlessGame.close();
+        endlessGame = new EndlessGame(new Random().nextLong(), ENDLESS_BOMBS_PER_CHUNK);
+        endlessTop = endlessGame.getStartRow() - ENDLESS_VIEW / 2;
+        endlessLeft = endlessGame.getStartCol() - ENDLESS_VIEW / 2;
+        renderer.setViewport(false);
+
+        while (true)
+        {
+            printEndlessView();
+            System.out.println("Enter the row number followed by the column number within the view (e.g., '3 5').");
+            System.out.println("Enter 'W', 'A', 'S' or 'D' to move the view, 'F' to mark or unmark a cell, 'Q' to quit.");
+
+            String inputStr = input.nextLine().trim();
+            if (inputStr.isEmpty()) continue;
+
+            switch (inputStr.toUpperCase())
+            {
+                case "Q":
+                    endlessGame.close();
+                    menu();
+                    return;
+
+                case "W":
+                    endlessTop -= ENDLESS_VIEW / 2;
+                    continue;
+
+                case "S":
+                    endlessTop += ENDLESS_VIEW / 2;
+                    continue;
+
+                case "A":
+                    endlessLeft -= ENDLESS_VIEW / 2;
+                    continue;
+
+                case "D":
+                    endlessLeft += ENDLESS_VIEW / 2;
+                    continue;
+
+                case "F":
+                    System.out.println("Enter the row and column of the cell to mark or unmark:");
+                    int[] flagCell = readEndlessCell();
+                    if (flagCell != null) endlessGame.flag(flagCell[0], flagCell[1]);
+                    continue;
+
+                default:
+                    break;
+            }
+
+            int[] cell = parseEndlessCell(inputStr);
+            if (cell == null) continue;
+
+            MoveResult result = endlessGame.reveal(cell[0], cell[1]);
+            if (result.getOutcome() == MoveResult.Outcome.FLAGGED_CELL)
+            {
+                System.out.println(RED + "You have to unmark this cell first!" + RESET);
+                System.out.println();
+            }
+            else if (result.getOutcome() == MoveResult.Outcome.ALREADY_REVEALED) showAlreadyChosenMessage();
+            else if (result.getOutcome() == MoveResult.Outcome.LOST)
+            {
+                endlessGameOver();
+                return;
+            }
+        }
+    }
+
+
+    // Draws the window of the endless board, with its position and the score.
+    private void printEndlessView()
+    {
+        endlessGame.copyView(endlessView, endlessTop, endlessLeft);
+        renderer.invalidate();
+        renderer.renderUserView(endlessView);
+        System.out.println("View row 1 is row " + endlessTop + ", column 1 is column " + endlessLeft +
+                " (the game started at 0, 0). Cells opened: " + endlessGame.getRevealedSafeCells());
+    }
+
+
+    private int[] readEndlessCell()
+    {
+        return parseEndlessCell(input.nextLine().trim());
+    }
+
+
+    // Turns "row col" within the view into a cell of the endless board, or prints why it cannot.
+    private int[] parseEndlessCell(String inputStr)
+    {
+        String[] inputParts = inputStr.split(" ");
+        if (inputParts.length != 2)
+        {
+            System.out.println(RED + "Invalid format. Please enter the row and column numbers separated by a space." + RESET);
+            System.out.println();
+            return null;
+        }
+
+        try
+        {
+            int row = Integer.parseInt(inputParts[0]);
+            int col = Integer.parseInt(inputParts[1]);
+            if (row >= 1 && row <= ENDLESS_VIEW && col >= 1 && col <= ENDLESS_VIEW)
+            {
+                return new int[] {endlessTop + row - 1, endlessLeft + col - 1};
+            }
+
+            System.out.println(RED + "Invalid row or column. Please try again." + RESET);
+        }
+        catch (NumberFormatException e)
+        {
+            System.out.println(RED + "Invalid input. Please enter numbers for row and column." + RESET);
+        }
+        System.out.println();
+        return null;
+    }
+
+
+    // Shows where the bombs were around the losing move and asks whether to play again.
+    private void endlessGameOver()
+    {
+        endlessGame.copyView(endlessView, endlessTop, endlessLeft);
+        renderer.invalidate();
+        renderer.renderBoardData(endlessView);
+        System.out.println();
+        System.out.println(BG_BLACK + RED + " You lost! You opened " + endlessGame.getRevealedSafeCells() + " cells." + RESET);
+
+        while (true)
+        {
+            System.out.println("Do you want to restart?");
+            System.out.println("Enter 1 for Yes, 2 for No.");
+
+            String inputStr = input.nextLine().trim();
+            if (inputStr.equals("1"))
+            {
+                playEndless();
+                return;
+            }
+            if (inputStr.equals("2"))
+            {
+                menu();
+                return;
+            }
+
+            System.out.println(RED + "Invalid input! Please try again." + RESET);
+            System.out.println();
+        }
+    }
+
+
+    // Has the engine make a fresh board: the minimap starts over and the board is drawn in full.
+    // The minimap is reset first, because a no-guess board opens its start cell right away.
+    // If no board without guessing turns up (e.g. far too many bombs), a normal board is played instead.
+    private void startBoard(boolean restart)
+    {
+        minimap.reset(size);
+        try
+        {
+            if (rating != null) startRatedBoard();
+            else if (restart) engine.restart();
+            else engine.newGame(size, numBombs, revealBoosts);
+        }
+        catch (IllegalArgumentException | IllegalStateException e)
+        {
+            if (!engine.isNoGuess()) throw e;
+
+            System.out.println(RED + "No board without guessing found for these settings, playing a normal board." + RESET);
+            minimap.reset(size);
+            engine.setNoGuess(false);
+            engine.newGame(size, numBombs, revealBoosts);
+            engine.setNoGuess(true);
+        }
+        renderer.invalidate();
+    }
+
+
+    // Starts a game on a board of the chosen rating, with the middle cell open, and tells the player its numbers.
+    // Every game, restarts included, gets a newly picked board.
+    private void startRatedBoard()
+    {
+        BoardAnalyzer.Report ratedBoard = BoardAnalyzer.pick(size, numBombs, rating, new Random().nextLong());
+        engine.newGame(size, numBombs, revealBoosts, ratedBoard.boardSeed, ratedBoard.startRow, ratedBoard.startCol);
+        System.out.println(rating.getTitle() + " board: 3BV " + ratedBoard.threeBV + ", " + ratedBoard.openings + " openings, " +
+                ratedBoard.islands + " islands, " + ratedBoard.forcedGuesses + " forced guesses.");
+    }
+
+
     // If player lost or won and wanted to restart game, this boolean will be true.
     public boolean shouldRestart = false;
 
     public void restartGame()
     {
-        setUserViewBoard();   // Reset the user's view of the board.
-        setBoardData();       // Generate a new game board with bombs and numbers.
+        startBoard(true);     // Generate a new game board with bombs and numbers, and reset the boosts.
         printUserViewBoard(); // Print the reset board
 
         if (shouldRestart)
@@ -183,49 +564,79 @@ public class Data {
     }
 
 
-    // This is for counting reveal boosts in next methode.
+    // Number of reveal boosts for the chosen level.
     public int revealBoosts;
-    // By this integer, we can reset the number of reveal boosts if player restart the game.
-    public int revealBoostsTemp;
-    // This method uses a reveal boost to randomly reveal a non-bomb, closed cell.
-    // After revealing the cell, if the cell is empty, it recursively uncovers neighboring cells.
+
+    // This method uses a reveal boost to reveal a non-bomb, closed cell.
+    // It opens the safe cell the player is least sure about, so the boost saves the player the riskiest click.
+    // If the cell is empty, the connected empty area around it is uncovered as well.
     public void showRevealBoostMessage()
     {
-        Random rand = new Random();
+        MoveResult result;
+        double chance = -1;
+        int cell = -1;
 
-        while (true)
+        if (size <= PROBABILITY_MAX_SIZE)
         {
-            // Randomly generate row and column indices.
-            int row = rand.nextInt(size);
-            int col = rand.nextInt(size);
+            probabilities.compute();
+            cell = probabilities.getBoostCell();
+        }
 
-            // Checks if the cell is not a bomb and did is closed.
-            if (boardData[row][col] != bombSymbol && userViewBoard[row][col] == closedSymbol)
-            {
-                revealBoosts--; // Decrease the number of available reveal boosts.
+        if (cell >= 0)
+        {
+            chance = probabilities.getProbability(cell / size, cell % size);
+            result = engine.boost(cell / size, cell % size);
+        }
+        else result = engine.boost();
 
-                // If the selected cell is empty, uncover its neighboring cells recursively.
-                if (boardData[row][col] == emptySymbol) {
-                    uncoverNeighbors(row, col);
-                }
-                else
-                {
-                    userViewBoard[row][col] = boardData[row][col];
-                }
+        // Every safe cell left is flagged, so there is nothing to reveal.
+        if (result.getOutcome() == MoveResult.Outcome.NOTHING_TO_REVEAL)
+        {
+            System.out.println(RED + "All remaining safe cells are flagged. Unmark one first!" + RESET);
+            System.out.println();
+            return;
+        }
 
-                // Inform the player that a cell has been revealed.
-                System.out.println("[Hint Used!] Cell at (" + (row + 1) + ',' + (col + 1) + ") revealed!");
-                System.out.println();
+        // Inform the player that a cell has been revealed.
+        System.out.print("[Hint Used!] Cell at (" + (result.getRow() + 1) + ',' + (result.getCol() + 1) + ") revealed!");
+        if (chance >= 0) System.out.printf(" (its bomb chance was %.0f%%)", chance * 100);
+        System.out.println();
+        System.out.println();
 
-                if (isPlayerWin())
-                {
-                    printUserViewBoard();
-                    showWinMessage();
-                    break;
-                }
-                break;
-            }
+        if (result.getOutcome() == MoveResult.Outcome.WON)
+        {
+            printUserViewBoard();
+            showWinMessage();
+        }
+    }
+
+
+    // If in "displayGame" methode player enter 'H', this methode will be shown.
+    // Points out the closed cell least likely to hide a bomb. Free to use, it does not reveal anything.
+    public void showSafestCellMessage()
+    {
+        if (size > PROBABILITY_MAX_SIZE)
+        {
+            System.out.println(RED + "Hints are only available on boards up to " + PROBABILITY_MAX_SIZE + " cells wide." + RESET);
+            System.out.println();
+            return;
+        }
+
+        probabilities.compute();
+        int cell = probabilities.getSafestCell();
+        if (cell < 0)
+        {
+            System.out.println(RED + "There is no closed cell without a flag left." + RESET);
+            System.out.println();
+            return;
         }
+
+        int row = cell / size;
+        int col = cell % size;
+        double chance = probabilities.getProbability(row, col);
+        if (chance == 0) System.out.println("[Hint] Cell (" + (row + 1) + ',' + (col + 1) + ") is safe for sure.");
+        else System.out.printf("[Hint] Safest cell: (%d,%d), bomb chance %.1f%%.%n", row + 1, col + 1, chance * 100);
+        System.out.println();
     }
 
 
@@ -238,7 +649,7 @@ public class Data {
         System.out.println("Numbers show how many bombs are around that cell.");
         System.out.println("Bombs end the game immediately if you click on them.");
         System.out.println("You can flag suspicious cells using the flag feature.");
-        System.out.println("Reveal Boosts: Use them to reveal a random safe cell.");
+        System.out.println("Reveal Boosts: Use them to reveal the safe cell you are least sure about.");
         System.out.println();
         System.out.println("Controls:");
         System.out.println("   - To open a cell: Type the row and column number.");
@@ -263,16 +674,6 @@ public class Data {
     }
 
 
-    // This method checks if the selected cell is a bomb.
-    // If it is a bomb, the game is over, and it returns true.
-    public boolean isGameOver(int row, int col)
-    {
-        // If the cell contains a bomb, return true, meaning the game is over.
-        if (boardData[row][col] == bombSymbol) return true;
-        else return false;
-    }
-
-
     // This method handles game over scenario and gives the player options to restart or quit.
     public void gameOverDisplay()
     {
@@ -294,7 +695,6 @@ public class Data {
             if (inputStr.equalsIgnoreCase("1"))
             {
                 // If player chooses to restart, reset variables and restart the game.
-                revealBoosts = revealBoostsTemp;
                 shouldRestart = true;
                 restartGame();
                 break;
@@ -315,15 +715,7 @@ public class Data {
     }
 
 
-    // Returns true if the cell has already been revealed by the player.
-    public boolean isAlreadyChosen(int row, int col)
-    {
-        if (userViewBoard[row][col] != closedSymbol) return true;
-        else return false;
-    }
-
-
-    // If "isAlreadyChosen" methode returns true, this methode will be shown.
+    // If the player picks a cell that is already open, this methode will be shown.
     public void showAlreadyChosenMessage()
     {
         String[] messages =
@@ -338,26 +730,7 @@ public class Data {
     }
 
 
-    // Checks if the player has revealed all safe cells. (win condition).
-    public boolean isPlayerWin()
-    {
-        int counter = 0;
-        for (int i = 0; i < Data.this.userViewBoard.length; i++)
-        {
-            for (int j = 0; j < Data.this.userViewBoard[i].length; j++)
-            {
-                // Count how many cells are still closed (not revealed).
-                if (userViewBoard[i][j] != closedSymbol && userViewBoard[i][j] != flagSymbol)
-                    counter++;
-            }
-        }
-        int allCells = size * size;
-        if (counter == (allCells) - numBombs) return true;
-        else return false;
-    }
-
-
-    // This method is called when isPlayerWin() returns true.
+    // This method is called when the player has revealed all safe cells.
     public void showWinMessage()
     {
         String[] messages =
@@ -375,7 +748,6 @@ public class Data {
             // Restarting the game.
             if (choice == 'R' || choice == 'r')
             {
-                revealBoosts = revealBoostsTemp;
                 shouldRestart = true;
                 restartGame();
                 break;
@@ -398,8 +770,6 @@ public class Data {
     public void showFlagMessage()
     {
         while (true) {
-            boolean alreadyChosen = false;
-
             System.out.println("Enter the row number followed by the column number to mark or unmark.");
             System.out.println("Enter Q to back to the game.");
 
@@ -424,31 +794,18 @@ public class Data {
                     int col = Integer.parseInt(inputParts[1]) - 1; // Convert column to number and adjust index.
 
 
-                    // Check if row and column are within valid range.
-                    if (row >= 0 && row < size && col >= 0 && col < size)
-                    {
-                        // Checks if the selected cell is close or not.
-                        alreadyChosen = isAlreadyChosen(row, col);
-
-                        // The cell is already opened.
-                        if (alreadyChosen && userViewBoard[row][col] != flagSymbol)
-                        {
-                            showAlreadyChosenMessage();
-                            continue;
-                        }
-
-                        // Cell is marked already.
-                        if (userViewBoard[row][col] == flagSymbol)
-                        {
-                            userViewBoard[row][col] = closedSymbol;
-                        }
+                    // Mark the cell, or unmark it if it is marked already.
+                    MoveResult result = engine.flag(row, col);
 
-                        // Flag the cell.
-                        else
-                        {
-                            userViewBoard[row][col] = flagSymbol;
-                        }
+                    // The cell is already opened.
+                    if (result.getOutcome() == MoveResult.Outcome.ALREADY_REVEALED)
+                    {
+                        showAlreadyChosenMessage();
+                        continue;
+                    }
 
+                    if (result.getOutcome() != MoveResult.Outcome.OUT_OF_RANGE)
+                    {
                         printUserViewBoard(); // Display the updated board
                         break;
                     }
@@ -484,34 +841,118 @@ public class Data {
     }
 
 
-    public void uncoverNeighbors(int row, int col)
+    // If in "displayGame" methode player enter 'V', this methode will be shown.
+    // Lets the player pan the viewport, jump to a cell, and show or hide the minimap.
+    public void showViewportMessage()
     {
-        // If the cell is a bomb, stop right here.
-        if (boardData[row][col] == bombSymbol) return;
+        while (true)
+        {
+            if (renderer.isViewport())
+            {
+                System.out.println("Showing rows " + (renderer.getViewTop() + 1) + '-' + (renderer.getViewTop() + Math.min(renderer.getViewRows(), size)) +
+                        ", columns " + (renderer.getViewLeft() + 1) + '-' + (renderer.getViewLeft() + Math.min(renderer.getViewCols(), size)) +
+                        " of " + size + '.');
+            }
+            System.out.println("Enter W, A, S or D to move the view up, left, down or right.");
+            System.out.println("Enter the row number followed by the column number to jump there.");
+            System.out.println("Enter 'M' to show or hide the minimap, 'O' to turn the view window on or off.");
+            System.out.println("Enter Q to back to the game.");
 
-        // If the cell has already been revealed, skip it.
-        if (userViewBoard[row][col] == emptySymbol) return;
+            String inputStr = input.nextLine().trim(); // Get the input and trim extra spaces.
 
-        // Reveal the current cell.
-        userViewBoard[row][col] = boardData[row][col];
+            // Move by half a window at a time.
+            int stepRows = Math.max(1, renderer.getViewRows() / 2);
+            int stepCols = Math.max(1, renderer.getViewCols() / 2);
 
-        // If the cell has a number (not empty), no need to continue.
-        if (boardData[row][col] != emptySymbol) return;
+            switch (inputStr.toUpperCase())
+            {
+                case "Q":
+                    printUserViewBoard();
+                    return;
 
-        // Now we know the cell is empty, so we reveal all its neighbors recursively.
-        // Up and down
-        if (row - 1 >= 0) uncoverNeighbors(row - 1, col);         // Up
-        if (row + 1 < boardData.length) uncoverNeighbors(row + 1, col); // Down
+                case "W":
+                    renderer.moveViewport(renderer.getViewTop() - stepRows, renderer.getViewLeft(), size);
+                    break;
 
-        // Left and right
-        if (col - 1 >= 0) uncoverNeighbors(row, col - 1);         // Left
-        if (col + 1 < boardData[0].length) uncoverNeighbors(row, col + 1); // Right
+                case "S":
+                    renderer.moveViewport(renderer.getViewTop() + stepRows, renderer.getViewLeft(), size);
+                    break;
+
+                case "A":
+                    renderer.moveViewport(renderer.getViewTop(), renderer.getViewLeft() - stepCols, size);
+                    break;
+
+                case "D":
+                    renderer.moveViewport(renderer.getViewTop(), renderer.getViewLeft() + stepCols, size);
+                    break;
+
+                case "M":
+                    renderer.setMinimap(renderer.hasMinimap() ? null : minimap);
+                    break;
+
+                case "O":
+                    renderer.setViewport(!renderer.isViewport());
+                    break;
+
+                default:
+                    String[] inputParts = inputStr.split(" ");
+                    try
+                    {
+                        if (inputParts.length != 2) throw new NumberFormatException();
+                        int row = Integer.parseInt(inputParts[0]) - 1; // Convert row to number and adjust index.
+                        int col = Integer.parseInt(inputParts[1]) - 1; // Convert column to number and adjust index.
 
-        // Diagonals
-        if (row - 1 >= 0 && col - 1 >= 0) uncoverNeighbors(row - 1, col - 1); // Top-left
-        if (row - 1 >= 0 && col + 1 < boardData[0].length) uncoverNeighbors(row - 1, col + 1); // Top-right
-        if (row + 1 < boardData.length && col - 1 >= 0) uncoverNeighbors(row + 1, col - 1); // Bottom-left
-        if (row + 1 < boardData.length && col + 1 < boardData[0].length) uncoverNeighbors(row + 1, col + 1); // Bottom-right
+                        if (row < 0 || row >= size || col < 0 || col >= size)
+                        {
+                            System.out.println(RED + "Invalid row or column. Please try again." + RESET);
+                            System.out.println();
+                            continue;
+                        }
+
+                        // Center the view on the chosen cell.
+                        renderer.setViewport(true);
+                        renderer.moveViewport(row - renderer.getViewRows() / 2, col - renderer.getViewCols() / 2, size);
+                    }
+                    catch (NumberFormatException e)
+                    {
+                        System.out.println(RED + "Invalid input! Please try again." + RESET);
+                        System.out.println();
+                        continue;
+                    }
+            }
+
+            printUserViewBoard();
+        }
+    }
+
+
+    // If in "displayGame" methode player enter 'A', the solver makes one move for the player.
+    // It reveals a cell it can prove safe, flags a cell it can prove is a bomb, or guesses if nothing is certain.
+    public MoveResult showSolverMessage()
+    {
+        MoveResult result = solver.step();
+        String cell = "(" + (result.getRow() + 1) + ',' + (result.getCol() + 1) + ')';
+
+        switch (result.getOutcome())
+        {
+            case FLAGGED:
+                System.out.println("[Solver] " + cell + " must be a bomb, flagged.");
+                break;
+
+            case UNFLAGGED:
+                System.out.println("[Solver] " + cell + " had a flag, removed it.");
+                break;
+
+            default:
+                if (solver.isLastMoveGuess()) System.out.println(YELLOW + "[Solver] Nothing is certain, guessed " + cell + '.' + RESET);
+                else System.out.println("[Solver] " + cell + " is safe, revealed.");
+                break;
+        }
+        System.out.println();
+
+        // A lost game shows the whole board instead.
+        if (result.getOutcome() != MoveResult.Outcome.LOST) printUserViewBoard();
+        return result;
     }
 
 
@@ -519,17 +960,19 @@ public class Data {
     public void displayGame()
     {
         boolean gameOver = false;
-        boolean alreadyChosen = false;
         boolean playerWin = false;
 
         String inputStr = "";
         while (true)
         {
             System.out.println("Enter the row number followed by the column number (e.g., '3 5').");
-            System.out.println("Use 'R' to restart or 'Q' to quit the game.");
+            System.out.println("Use 'R' to restart or 'Q' to quit the game, 'S' to save it for later.");
             System.out.println("Enter 'F' to mark or unmark cell.");
             System.out.println("Enter 'B' to use reveal Boost.");
-            System.out.println("(⚡ Reveal Boosts left: " + revealBoosts + ')');
+            System.out.println("Enter 'D' to turn differential drawing on or off.");
+            System.out.println("Enter 'V' to move the view or show the minimap.");
+            System.out.println("Enter 'A' to let the solver make one move, 'H' to see the safest cell.");
+            System.out.println("(⚡ Reveal Boosts left: " + engine.getRevealBoosts() + ')');
 
             while (true)
             {
@@ -544,7 +987,6 @@ public class Data {
                 // Handle single-character commands like R, Q, F, B.
                 switch (inputStr.toUpperCase()) {
                     case "R":
-                        revealBoosts = revealBoostsTemp;
                         restartGame();
                         continue;
 
@@ -552,13 +994,41 @@ public class Data {
                         menu();
                         break;
 
+                    case "S":
+                        saveGame();
+                        printUserViewBoard();
+                        continue;
+
                     case "F":
                         printUserViewBoard();
                         showFlagMessage();
                         continue;
 
+                    case "D":
+                        // Differential drawing keeps the board at the top and only redraws the cells that changed.
+                        renderer.setDifferential(!renderer.isDifferential());
+                        System.out.println("Differential drawing " + (renderer.isDifferential() ? "on." : "off."));
+                        printUserViewBoard();
+                        continue;
+
+                    case "V":
+                        showViewportMessage();
+                        continue;
+
+                    case "H":
+                        showSafestCellMessage();
+                        printUserViewBoard();
+                        continue;
+
+                    case "A":
+                        MoveResult step = showSolverMessage();
+                        gameOver = step.getOutcome() == MoveResult.Outcome.LOST;
+                        playerWin = step.getOutcome() == MoveResult.Outcome.WON;
+                        if (!gameOver && !playerWin) continue;
+                        break;
+
                     case "B":
-                        if (revealBoosts > 0) {
+                        if (engine.getRevealBoosts() > 0) {
                             showRevealBoostMessage();
                             printUserViewBoard();
                         } else {
@@ -571,6 +1041,9 @@ public class Data {
                         System.out.println(RED + "Invalid input. Please try again." + RESET);
                         break;
                 }
+
+                // The solver's move ended the game.
+                if (gameOver || playerWin) break;
             }
 
             // Check if the input contains two numbers. (row and column)
@@ -584,33 +1057,31 @@ public class Data {
                     int row = Integer.parseInt(inputParts[0]) - 1; // Convert row to number and adjust index.
                     int col = Integer.parseInt(inputParts[1]) - 1; // Convert column to number and adjust index.
 
-                    // Check if row and column are within valid range
-                    if (row >= 0 && row < size && col >= 0 && col < size)
+                    MoveResult result = engine.reveal(row, col);
+
+                    if (result.getOutcome() == MoveResult.Outcome.FLAGGED_CELL)
                     {
-                        gameOver = isGameOver(row, col);
-                        alreadyChosen = isAlreadyChosen(row, col);
+                        System.out.println(RED + "You have to unmark this cell first!" + RESET);
+                        System.out.println();
+                        printUserViewBoard();
+                        continue;
+                    }
 
-                        if (userViewBoard[row][col] == flagSymbol)
-                        {
-                            System.out.println(RED + "You have to unmark this cell first!" + RESET);
-                            System.out.println();
-                            printUserViewBoard();
-                            continue;
-                        }
+                    gameOver = result.getOutcome() == MoveResult.Outcome.LOST;
+                    if (gameOver) break;
 
-                        if (gameOver) break;
-                        if (alreadyChosen)
-                        {
-                            showAlreadyChosenMessage();
-                            continue;
-                        }
+                    if (result.getOutcome() == MoveResult.Outcome.ALREADY_REVEALED)
+                    {
+                        showAlreadyChosenMessage();
+                        continue;
+                    }
 
-                        uncoverNeighbors(row , col);
+                    if (result.getOutcome() != MoveResult.Outcome.OUT_OF_RANGE)
+                    {
                         printUserViewBoard(); // Display the updated board
 
-                        playerWin = isPlayerWin(); // Check player won or not.
+                        playerWin = result.getOutcome() == MoveResult.Outcome.WON; // Check player won or not.
                         if (playerWin) break;
-
                     }
                     else
                     {
@@ -673,10 +1144,23 @@ public class Data {
             setBombSymbol(bombInput.charAt(0));
         }
 
+        // Ask whether every board should be solvable by logic alone.
+        System.out.println("Only play boards that can be solved without guessing? (y/n, default: " + (engine.isNoGuess() ? "y" : "n") + "): ");
+        String noGuessInput = input.nextLine().trim();
+
+        if (!noGuessInput.isEmpty())
+        {
+            engine.setNoGuess(Character.toLowerCase(noGuessInput.charAt(0)) == 'y');
+        }
+
+        // Start searching for boards of the preset levels that suit the new setting.
+        for (Level level : Level.values()) boardPool.prepare(level.getSize(), level.getNumBombs(), engine.isNoGuess(), !engine.isNoGuess());
+
         // Display the new settings to the user.
         System.out.println("Symbols updated! Closed: " + RED + closedSymbol + RESET +
                                              " Empty: " + RED + emptySymbol + RESET +
                                              " bomb: " + RED + bombSymbol + RESET);
+        System.out.println("No-guess boards: " + RED + (engine.isNoGuess() ? "on" : "off") + RESET);
         System.out.println();
     }
 
@@ -696,6 +1180,9 @@ public class Data {
             System.out.println("1. Easy (9x9 board, 10 bombs)");
             System.out.println("2. Medium (16x16 board, 40 bombs)");
             System.out.println("3. Hard (24x24 board, 90 bombs)");
+            System.out.println("4. Custom (choose the board size and bombs)");
+            System.out.println("5. Endless (a board without edges, open as much as you can)");
+            System.out.println("6. Rated (a preset level, with a board picked for how hard it plays)");
 
             String inputStr = input.nextLine().trim(); // Get the input and trim extra spaces.
 
@@ -716,6 +1203,18 @@ public class Data {
                         level = 3;
                         break;
 
+                    case "4":
+                        level = 4;
+                        break;
+
+                    case "5":
+                        level = 5;
+                        break;
+
+                    case "6":
+                        level = 6;
+                        break;
+
                     default:
                         // If the input is invalid, show an error and ask again.
                         System.out.println(RED + "Invalid level! Try again." + RESET);
@@ -729,221 +1228,108 @@ public class Data {
         }
 
         // Set the board size, number of bombs, and reveal boosts based on difficulty level.
-        switch(level)
+        endless = level == 5;
+        rating = null;
+        if (endless)
         {
-            case 1:
-                size = 9; numBombs = 10; revealBoosts = 3; break;
-
-            case 2:
-                size = 16; numBombs = 40; revealBoosts = 6; break;
-
-            case 3:
-                size = 24; numBombs = 90; revealBoosts = 10; break;
+            System.out.println("Level selected: Endless");
+            return;
         }
 
-        // Save the initial number of boosts for future use. (like restarting the game)
-        revealBoostsTemp = revealBoosts;
-
-        // Show the selected level to the player.
-        System.out.println("Level selected: " + (level == 1 ? "Easy" : level == 2 ? "Medium" : "Hard"));
-    }
-
-
-    // Initializes the user view board with all cells set to the closed symbol.
-    public void setUserViewBoard()
-    {
-        // Create a new 2D array to represent the board the user will interact with.
-        userViewBoard = new char[size][size];
-
-        // Fill every cell of the board with the 'closed' symbol (e.g., '-').
-        for (int i = 0; i < size; i++)
+        if (level == 4)
         {
-            for (int j = 0; j < size; j++)
-            {
-                userViewBoard[i][j] = closedSymbol;
-            }
+            chooseCustomBoard();
+            System.out.println("Level selected: Custom");
+            return;
         }
-    }
-
-
-    // This part of the code is responsible for printing the column numbers with proper alignment.
-    public void printUserViewBoard()
-    {
-        System.out.print("  "); // Extra space for aligning rows.
 
-        for (int j = 1; j <= size; j++)
+        if (level == 6)
         {
-            System.out.printf("%s%2d%s", CYAN, j, RESET); // Print the column numbers in CYAN.
-            if (j >= 10) System.out.print(" "); // Add extra space if column number is greater than 9.
+            chooseRatedBoard();
+            return;
         }
-        System.out.println();
 
-        // This section prints the rows and the content of each cell.
-        for (int i = 0; i < size; i++)
-        {
-            System.out.printf("%s%2d%s ", CYAN, i + 1, RESET); // Print the row number in CYAN.
-
-            // Check and print the content of each cell, with color formatting.
-            for (int j = 0; j < size; j++)
-            {
-                // If the cell is closed, print the closed symbol.
-                if (userViewBoard[i][j] == closedSymbol)
-                {
-                    System.out.print(userViewBoard[i][j]);
-                }
-                else if (userViewBoard[i][j] == emptySymbol)
-                {
-                    // Print the empty cell in black.
-                    System.out.print(BLACK + userViewBoard[i][j] + RESET);
-                }
-                else if (userViewBoard[i][j] == flagSymbol)
-                {
-                    // Print the flagged cell in yellow.
-                    System.out.print(YELLOW + userViewBoard[i][j] + RESET);
-                }
-                else
-                {
-                    // Print numbers in different colors based on their value.
-                    switch (userViewBoard[i][j])
-                    {
-                        case '1':
-                            System.out.print(LIGHT_RED+ userViewBoard[i][j] + RESET);
-                            break;
+        Level preset = Level.values()[level - 1];
+        size = preset.getSize();
+        numBombs = preset.getNumBombs();
+        revealBoosts = preset.getRevealBoosts();
 
-                        case '2':
-                            System.out.print(RED + userViewBoard[i][j] + RESET);
-                            break;
+        // Show the selected level to the player.
+        System.out.println("Level selected: " + preset.getTitle());
+    }
 
-                        case '3':
-                            System.out.print(RED_DARK + userViewBoard[i][j] + RESET);
-                            break;
 
-                        default:
-                            // Print all other values in purple.
-                            System.out.print(PURPLE + userViewBoard[i][j] + RESET);
-                    }
-                }
+    // How hard the boards of a rated level play, or null to play any board of the level.
+    private Rating rating = null;
 
-                // Manage spacing for a neat display.
-                if (j < 10) System.out.print(" ");  // Add a single space for one-digit numbers.
-                else System.out.print("  "); // Add two spaces for two-digit numbers.
-            }
-            System.out.println();
-        }
+    // Asks for a preset level and a rating. Every game then plays a board picked by the analyzer.
+    public void chooseRatedBoard()
+    {
+        Level[] levels = Level.values();
+        for (int i = 0; i < levels.length; i++) System.out.println((i + 1) + ". " + levels[i].getTitle());
+        Level preset = levels[readNumber("Choose the level to rate (1 to " + levels.length + "): ", 1, levels.length) - 1];
+
+        Rating[] ratings = Rating.values();
+        for (int i = 0; i < ratings.length; i++) System.out.println((i + 1) + ". " + ratings[i].getTitle());
+        rating = ratings[readNumber("Choose how hard the board plays (1 to " + ratings.length + "): ", 1, ratings.length) - 1];
+
+        size = preset.getSize();
+        numBombs = preset.getNumBombs();
+        revealBoosts = preset.getRevealBoosts();
+        System.out.println("Level selected: " + preset.getTitle() + ", " + rating.getTitle());
     }
 
 
-    // Initializes the board with bombs and adjacent bomb counts.
-    public void setBoardData()
-    {
-        // Create the board with the given size.
-        boardData = new char[size][size];
-
-        // Place bombs randomly on the board.
-        placeBombs();
+    // Largest custom board size; the bit-packed board keeps even this one within a few hundred MB.
+    private static final int MAX_CUSTOM_SIZE = 20000;
 
-        // Iterate over the entire board to calculate bomb counts for each cell.
-        for(int i = 0; i < size; i++)
-        {
-            for (int j = 0; j < size; j++)
-            {
-                // If the cell is not a bomb, calculate the number of surrounding bombs.
-                if (boardData[i][j] != bombSymbol)
-                {
-                    int num = countBomb(i,j);
-                    if (num != 0)
-                    {
-                        // If there are surrounding bombs, store the count in the cell.
-                        boardData[i][j] = Character.forDigit(num, 10);
-                    }
-                    else
-                    {
-                        // If no bombs around, mark the cell as empty.
-                        boardData[i][j] = emptySymbol;
-                    }
-                }
-            }
-        }
+    // Asks for the size and number of bombs of a custom board.
+    // Reveal boosts scale with the bombs, about one for every nine like the presets.
+    public void chooseCustomBoard()
+    {
+        size = readNumber("Enter the board size (2 to " + MAX_CUSTOM_SIZE + "): ", 2, MAX_CUSTOM_SIZE);
+        numBombs = readNumber("Enter the number of bombs (1 to " + (size * size - 1) + "): ", 1, size * size - 1);
+        revealBoosts = Math.max(1, numBombs / 9);
     }
 
 
-    // Triggered when the player selects a bomb or the game ends.
-    public void printBoardData ()
+    // Keeps asking until the player enters a whole number in [min, max].
+    private int readNumber(String prompt, int min, int max)
     {
-        System.out.print("  "); // Extra space for aligning rows.
-        for (int j = 1; j <= size; j++)
-        {
-            System.out.printf("%s%2d%s", CYAN, j, RESET); // Column counting.
-            if (j >= 10) System.out.print(" ");
-        }
-        System.out.println();
-
-        for (int i = 0; i < size; i++)
+        while (true)
         {
-            System.out.printf("%s%2d%s ", CYAN, i + 1, RESET); // Row counting.
+            System.out.println(prompt);
+            String inputStr = input.nextLine().trim(); // Get the input and trim extra spaces.
 
-            for (int j = 0; j < size; j++)
+            try
             {
-                if (boardData[i][j] == bombSymbol)
-                {
-                    System.out.print(RED + bombSymbol + RESET);
-                    if (j < 10) System.out.print(" ");
-                    else System.out.print("  ");
-                }
-                else
-                {
-                    System.out.print(emptySymbol);
-                    if (j < 10) System.out.print(" ");
-                    else System.out.print("  ");
-                }
+                int number = Integer.parseInt(inputStr);
+                if (number >= min && number <= max) return number;
+            }
+            catch (NumberFormatException e)
+            {
+                // Handled below like a number out of range.
             }
+
+            System.out.println(RED + "Invalid number! Try again." + RESET);
             System.out.println();
         }
     }
 
 
-
-     // Calculates the number of bombs adjacent to a given cell.
-     // Checks all 8 neighboring positions (up, down, left, right, and diagonals).
-    public int countBomb(int row, int col)
+    // Prints the board as the player sees it, with column and row numbers.
+    // The whole frame is built in one buffer and written at once.
+    public void printUserViewBoard()
     {
-        int bombCount = 0;
-
-        // Count bombs in all 8 adjacent cells if within bounds
-
-        if (col - 1 >= 0 && boardData[row][col - 1] == bombSymbol) bombCount++; // Check left
-        if (col + 1 < size && boardData[row][col + 1] == bombSymbol) bombCount++; // Check right
-        if (row - 1 >= 0 && boardData[row - 1][col] == bombSymbol) bombCount++; // Check top
-        if (row + 1 < size && boardData[row + 1][col] == bombSymbol) bombCount++; // Check bottom
-        if (row + 1 < size && col - 1 >= 0 && boardData[row + 1][col - 1] == bombSymbol) bombCount++; // Check bottom-left
-        if (row + 1 < size && col + 1 < size && boardData[row + 1][col + 1] == bombSymbol) bombCount++; // Check bottom-right
-        if (row - 1 >= 0 && col - 1 >= 0 && boardData[row - 1][col - 1] == bombSymbol) bombCount++; // Check top-left
-        if (row - 1 >= 0 && col + 1 < size && boardData[row - 1][col + 1] == bombSymbol) bombCount++; // Check top-right
-
-        return bombCount;
+        renderer.renderUserView(engine.getBoard());
     }
 
 
-    // Randomly places bombs on the game board without duplication.
-    public void placeBombs()
+    // Triggered when the player selects a bomb or the game ends.
+    // Shows where all the bombs were.
+    public void printBoardData ()
     {
-        Random rand = new Random();
-        int bombsPlaced = 0;
-
-        // Loop until all bombs are placed.
-        while (bombsPlaced < numBombs)
-        {
-            // Generate random row and column
-            int row = rand.nextInt(size);
-            int col = rand.nextInt(size);
-
-            // Check if the cell already has a bomb
-            if (boardData[row][col] != bombSymbol)
-            {
-                boardData[row][col] = bombSymbol;
-                bombsPlaced++;
-            }
-        }
+        renderer.renderBoardData(engine.getBoard());
     }
 
 
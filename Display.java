@@ -1,8 +1,58 @@
+import java.nio.file.Path;
+import java.util.Arrays;
+
 public class Display
 {
-    public static void main(String [] args) {
+    public static void main(String [] args) throws Exception {
+        // Publishes the engine metrics over JMX when they are turned on, see Metrics.
+        Metrics.start();
+
+        // "simulate" plays games without the console, see Simulator.
+        if (args.length > 0 && args[0].equalsIgnoreCase("simulate")) {
+            Simulator.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
+        // "analyze" rates boards of every level by difficulty, see BoardAnalyzer.
+        if (args.length > 0 && args[0].equalsIgnoreCase("analyze")) {
+            BoardAnalyzer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
+        // "replay <journal> [game]" lists the recorded games, or plays one of them back, see ReplayViewer.
+        if (args.length > 1 && args[0].equalsIgnoreCase("replay")) {
+            ReplayViewer viewer = new ReplayViewer();
+            if (args.length > 2) viewer.replay(Path.of(args[1]), Integer.parseInt(args[2]));
+            else viewer.listGames(Path.of(args[1]));
+            return;
+        }
+
+        // "serve [address]" runs a game server for many players, see GameServer.
+        if (args.length > 0 && args[0].equalsIgnoreCase("serve")) {
+            GameServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
+        // "load [address] [sessions] [players] [seconds] [level]" measures a running game server, see LoadClient.
+        if (args.length > 0 && args[0].equalsIgnoreCase("load")) {
+            LoadClient.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
+        // "coop [size] [density] [threads] [seed]" has solver threads play one board together, see CoopSolver.
+        if (args.length > 0 && args[0].equalsIgnoreCase("coop")) {
+            CoopSolver.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
+        // "coop-stress [size] [density] [threads] [seed]" checks the shared board under contention, see SharedBoard.
+        if (args.length > 0 && args[0].equalsIgnoreCase("coop-stress")) {
+            SharedBoard.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         Data game = new Data();
 
         game.menu();
     }
-}
\ No newline at end of file
+}
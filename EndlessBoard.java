@@ -0,0 +1,522 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.SplittableRandom;
+
+// A board without edges, for endless games.
+// The plane is cut into 64x64 chunks. The bombs of a chunk only depend on the game seed and the chunk's
+// coordinates, so a chunk can be built whenever a cell in it is needed and thrown away again at any time.
+// At most "maxChunks" chunks are kept in memory. When one more is needed, a chunk that was not used for a
+// while is evicted, preferably one nobody touched or one that is fully solved. What the player did there
+// (revealed cells and flags) is kept as a small delta and put back when the chunk is built again;
+// a fully solved chunk without flags costs three longs.
+// The deltas kept in memory are capped too ("maxStoredWords"). Past the cap, the oldest ones are written to a spill
+// file, a super-chunk (8x8 chunks) at a time, and read back as a whole when one of its chunks is built again. What stays
+// in memory for them is one small index entry per super-chunk, 512x512 cells. The space of records read back is
+// reclaimed by rewriting the file now and then, and the file is deleted by "close" or when the program exits.
+// Cells are addressed by any int row and column, negative ones included.
+public class EndlessBoard implements AutoCloseable
+{
+    // Chunks are CHUNK x CHUNK cells; one long holds one row of a chunk in each bit layer.
+    public static final int CHUNK_SHIFT = 6;
+    public static final int CHUNK = 1 << CHUNK_SHIFT;
+    public static final int CHUNK_CELLS = CHUNK * CHUNK;
+
+    // Longs of evicted chunk deltas kept in memory by default (2 MB) before the oldest go to the spill file.
+    public static final int DEFAULT_MAX_STORED_WORDS = 1 << 18;
+
+    // Eviction looks this far into the least recently used chunks for an untouched or solved one.
+    private static final int EVICTION_SCAN = 16;
+
+    // Deltas are spilled and read back in super-chunks of (1 << SUPER_SHIFT) x (1 << SUPER_SHIFT) chunks.
+    private static final int SUPER_SHIFT = 3;
+
+    // The spill file is not compacted while it is smaller than this.
+    private static final long COMPACT_MIN_BYTES = 1 << 20;
+
+    // One chunk: its bombs, and what the player sees of it.
+    private static final class Chunk
+    {
+        final long key;
+        final long[] bombs = new long[CHUNK];
+        final long[] revealed = new long[CHUNK];
+        final long[] flags = new long[CHUNK];
+        int revealedCount = 0;
+        int flagCount = 0;
+
+        Chunk(long key)
+        {
+            this.key = key;
+        }
+    }
+
+
+    private final long seed;
+    private final int bombsPerChunk;
+    private final int maxChunks;
+    private final long maxStoredWords;
+
+    // Chunks in memory, least recently used first.
+    private final LinkedHashMap<Long, Chunk> chunks = new LinkedHashMap<>(64, 0.75f, true);
+
+    // Player state of evicted chunks, by chunk key, oldest first, and the longs they take in all.
+    // Chunks the player never touched have no entry.
+    private final LinkedHashMap<Long, long[]> deltas = new LinkedHashMap<>();
+    private long storedWords = 0;
+
+    // Spilled deltas: where the record of each super-chunk is in the spill file, as {position, longs}.
+    // A chunk's state is in exactly one place: its chunk in memory, its delta, or its super-chunk's record.
+    private final HashMap<Long, long[]> spilled = new HashMap<>();
+    private int spilledChunks = 0;
+    private long spilledWords = 0;
+    private Path spillFile;
+    private long spillEnd = 0;
+
+    // The chunk of the last cell asked for. Nearby cells are usually in the same chunk, which saves a map lookup.
+    private Chunk last;
+
+    // Chunks built so far, including rebuilds of evicted ones.
+    private long chunksBuilt = 0;
+
+
+    public EndlessBoard(long seed, int bombsPerChunk, int maxChunks)
+    {
+        this(seed, bombsPerChunk, maxChunks, DEFAULT_MAX_STORED_WORDS);
+    }
+
+
+    public EndlessBoard(long seed, int bombsPerChunk, int maxChunks, long maxStoredWords)
+    {
+        if (bombsPerChunk < 0 || bombsPerChunk > CHUNK_CELLS) throw new IllegalArgumentException("Invalid number of bombs per chunk: " + bombsPerChunk);
+
+        // A cell and its neighbors can span four chunks, and the fill needs a little room around them.
+        if (maxChunks < 9) throw new IllegalArgumentException("At least 9 chunks must fit in memory: " + maxChunks);
+        if (maxStoredWords < 0) throw new IllegalArgumentException("Invalid number of stored words: " + maxStoredWords);
+
+        this.seed = seed;
+        this.bombsPerChunk = bombsPerChunk;
+        this.maxChunks = maxChunks;
+        this.maxStoredWords = maxStoredWords;
+    }
+
+
+    public long getSeed()
+    {
+        return seed;
+    }
+
+
+    public int getBombsPerChunk()
+    {
+        return bombsPerChunk;
+    }
+
+
+    // Chunks in memory right now; never more than "maxChunks".
+    public int getResidentChunks()
+    {
+        return chunks.size();
+    }
+
+
+    // Evicted chunks whose player state is kept as a delta, in memory or in the spill file.
+    public int getStoredChunks()
+    {
+        return deltas.size() + spilledChunks;
+    }
+
+
+    // Evicted chunks whose delta is in the spill file.
+    public int getSpilledChunks()
+    {
+        return spilledChunks;
+    }
+
+
+    public long getChunksBuilt()
+    {
+        return chunksBuilt;
+    }
+
+
+    public boolean isBomb(int row, int col)
+    {
+        return (chunk(row, col).bombs[row & (CHUNK - 1)] & (1L << col)) != 0;
+    }
+
+
+    public boolean isRevealed(int row, int col)
+    {
+        return (chunk(row, col).revealed[row & (CHUNK - 1)] & (1L << col)) != 0;
+    }
+
+
+    public boolean isFlagged(int row, int col)
+    {
+        return (chunk(row, col).flags[row & (CHUNK - 1)] & (1L << col)) != 0;
+    }
+
+
+    // Shows the cell to the player. The caller makes sure it is closed.
+    public void setRevealed(int row, int col)
+    {
+        Chunk chunk = chunk(row, col);
+        chunk.revealed[row & (CHUNK - 1)] |= 1L << col;
+        chunk.revealedCount++;
+    }
+
+
+    public void setFlagged(int row, int col, boolean flagged)
+    {
+        Chunk chunk = chunk(row, col);
+        long bit = 1L << col;
+        long word = chunk.flags[row & (CHUNK - 1)];
+        if (((word & bit) != 0) == flagged) return;
+
+        chunk.flags[row & (CHUNK - 1)] = word ^ bit;
+        chunk.flagCount += flagged ? 1 : -1;
+    }
+
+
+    // Number of bombs around the cell (0 to 8). Cells on a chunk border look into the neighboring chunks.
+    public int getCount(int row, int col)
+    {
+        int bombCount = 0;
+        for (int r = row - 1; r <= row + 1; r++)
+        {
+            for (int c = col - 1; c <= col + 1; c++)
+            {
+                if ((r != row || c != col) && isBomb(r, c)) bombCount++;
+            }
+        }
+        return bombCount;
+    }
+
+
+    // The chunk that holds the cell, built or restored if it is not in memory.
+    private Chunk chunk(int row, int col)
+    {
+        long key = key(row >> CHUNK_SHIFT, col >> CHUNK_SHIFT);
+        if (last != null && last.key == key) return last;
+
+        Chunk chunk = chunks.get(key);
+        if (chunk == null)
+        {
+            chunk = build(key);
+            chunks.put(key, chunk);
+            while (chunks.size() > maxChunks) evict(chunk);
+        }
+        last = chunk;
+        return chunk;
+    }
+
+
+    private static long key(int chunkRow, int chunkCol)
+    {
+        return ((long) chunkRow << 32) | (chunkCol & 0xFFFFFFFFL);
+    }
+
+
+    // Places the chunk's bombs from the game seed and its coordinates, then puts back the player's delta.
+    // Floyd's sampling, like the fixed-size boards: one random draw per bomb and no retries.
+    private Chunk build(long key)
+    {
+        Chunk chunk = new Chunk(key);
+        SplittableRandom rand = new SplittableRandom(seed ^ key * 0x9E3779B97F4A7C15L);
+        for (int j = CHUNK_CELLS - bombsPerChunk; j < CHUNK_CELLS; j++)
+        {
+            int cell = rand.nextInt(j + 1);
+            if ((chunk.bombs[cell >>> CHUNK_SHIFT] & (1L << cell)) != 0) cell = j;
+            chunk.bombs[cell >>> CHUNK_SHIFT] |= 1L << cell;
+        }
+
+        if (!deltas.containsKey(key) && spilled.containsKey(superKey(key))) readSpilled(superKey(key));
+        long[] delta = deltas.remove(key);
+        if (delta != null)
+        {
+            storedWords -= delta.length;
+            restore(chunk, delta);
+        }
+
+        chunksBuilt++;
+        return chunk;
+    }
+
+
+    // Drops one chunk from memory, keeping its player state as a delta.
+    // Looks for an untouched or solved chunk among the least recently used ones first; those are the cheapest
+    // to rebuild, and solved chunks are unlikely to be needed again. The chunk just built is never evicted.
+    private void evict(Chunk keep)
+    {
+        Chunk victim = null;
+        int scanned = 0;
+        for (Iterator<Chunk> it = chunks.values().iterator(); it.hasNext() && scanned < EVICTION_SCAN; scanned++)
+        {
+            Chunk chunk = it.next();
+            if (chunk == keep) continue;
+            if (victim == null) victim = chunk;
+            if (isUntouched(chunk) || isSolved(chunk))
+            {
+                victim = chunk;
+                break;
+            }
+        }
+
+        chunks.remove(victim.key);
+        if (last == victim) last = null;
+        if (isUntouched(victim)) return;
+
+        long[] delta = save(victim);
+        deltas.put(victim.key, delta);
+        storedWords += delta.length;
+        if (storedWords <= maxStoredWords) return;
+
+        // Spill down to half the cap, so spills come in batches rather than one with every eviction.
+        while (storedWords > maxStoredWords / 2) spill(superKey(deltas.keySet().iterator().next()));
+    }
+
+
+    private static long superKey(long key)
+    {
+        return key((int) (key >> 32) >> SUPER_SHIFT, (int) key >> SUPER_SHIFT);
+    }
+
+
+    // Writes the deltas of every evicted chunk of a super-chunk to the end of the spill file, together with the
+    // ones already spilled for it, and drops them from memory.
+    // Record layout: the number of chunks, then per chunk its key, the length of its delta and the delta.
+    private void spill(long superKey)
+    {
+        if (spilled.containsKey(superKey)) readSpilled(superKey);
+
+        int chunkRow = (int) (superKey >> 32) << SUPER_SHIFT;
+        int chunkCol = (int) superKey << SUPER_SHIFT;
+        int count = 0;
+        int words = 1;
+        long[][] members = new long[1 << 2 * SUPER_SHIFT][];
+        long[] keys = new long[members.length];
+        for (int r = 0; r < 1 << SUPER_SHIFT; r++)
+        {
+            for (int c = 0; c < 1 << SUPER_SHIFT; c++)
+            {
+                long key = key(chunkRow + r, chunkCol + c);
+                long[] delta = deltas.remove(key);
+                if (delta == null) continue;
+
+                keys[count] = key;
+                members[count++] = delta;
+                words += 2 + delta.length;
+                storedWords -= delta.length;
+            }
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(words * Long.BYTES);
+        LongBuffer longs = record.asLongBuffer();
+        longs.put(count);
+        for (int i = 0; i < count; i++) longs.put(keys[i]).put(members[i].length).put(members[i]);
+
+        try
+        {
+            if (spillFile == null)
+            {
+                spillFile = Files.createTempFile("minesweeper-endless-", ".spill");
+                spillFile.toFile().deleteOnExit();
+            }
+            write(spillFile, spillEnd, record);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        spilled.put(superKey, new long[] {spillEnd, words});
+        spillEnd += (long) words * Long.BYTES;
+        spilledWords += words;
+        spilledChunks += count;
+
+        // Records read back leave holes; once they take more room than the records themselves, the file is rewritten.
+        if (spillEnd > 2 * spilledWords * Long.BYTES + COMPACT_MIN_BYTES) compactSpillFile();
+    }
+
+
+    // Reads the spilled record of a super-chunk back into the deltas in memory.
+    private void readSpilled(long superKey)
+    {
+        long[] where = spilled.remove(superKey);
+        LongBuffer longs;
+        try
+        {
+            longs = read(spillFile, where[0], (int) where[1]).asLongBuffer();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        int count = (int) longs.get();
+        for (int i = 0; i < count; i++)
+        {
+            long key = longs.get();
+            long[] delta = new long[(int) longs.get()];
+            longs.get(delta);
+            deltas.put(key, delta);
+            storedWords += delta.length;
+        }
+        spilledWords -= where[1];
+        spilledChunks -= count;
+    }
+
+
+    // Copies the records still in use to a new spill file, one after the other, and deletes the old one.
+    private void compactSpillFile()
+    {
+        try
+        {
+            Path compacted = Files.createTempFile("minesweeper-endless-", ".spill");
+            compacted.toFile().deleteOnExit();
+
+            long end = 0;
+            for (long[] where : spilled.values())
+            {
+                write(compacted, end, read(spillFile, where[0], (int) where[1]));
+                where[0] = end;
+                end += where[1] * Long.BYTES;
+            }
+
+            Files.delete(spillFile);
+            spillFile = compacted;
+            spillEnd = end;
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    private static ByteBuffer read(Path file, long position, int words) throws IOException
+    {
+        ByteBuffer record = ByteBuffer.allocate(words * Long.BYTES);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            while (record.hasRemaining())
+            {
+                int read = channel.read(record, position);
+                if (read < 0) throw new IOException("The spill file " + file + " is cut short");
+                position += read;
+            }
+        }
+        return record.flip();
+    }
+
+
+    private static void write(Path file, long position, ByteBuffer record) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE))
+        {
+            while (record.hasRemaining()) position += channel.write(record, position);
+        }
+    }
+
+
+    // Deletes the spill file. The board can still be played afterwards, but the spilled player state is gone.
+    @Override
+    public void close()
+    {
+        spilled.clear();
+        spilledChunks = 0;
+        spilledWords = 0;
+        spillEnd = 0;
+        if (spillFile == null) return;
+
+        try
+        {
+            Files.deleteIfExists(spillFile);
+        }
+        catch (IOException e)
+        {
+            // Left for the exit hook to delete.
+        }
+        spillFile = null;
+    }
+
+
+    private static boolean isUntouched(Chunk chunk)
+    {
+        return chunk.revealedCount == 0 && chunk.flagCount == 0;
+    }
+
+
+    private boolean isSolved(Chunk chunk)
+    {
+        return chunk.revealedCount == CHUNK_CELLS - bombsPerChunk;
+    }
+
+
+    // Delta layout: [0] rows that are fully revealed (every safe cell open), [1] rows stored as they are,
+    // [2] rows with flags, then the stored revealed rows and the flag rows, in row order.
+    // Rows with nothing revealed take no space, and neither do fully revealed ones, so a solved chunk
+    // is just the three masks.
+    private static long[] save(Chunk chunk)
+    {
+        long fullRows = 0;
+        long rawRows = 0;
+        long flagRows = 0;
+        int words = 3;
+        for (int r = 0; r < CHUNK; r++)
+        {
+            long revealed = chunk.revealed[r];
+            if (revealed != 0 && revealed == ~chunk.bombs[r]) fullRows |= 1L << r;
+            else if (revealed != 0)
+            {
+                rawRows |= 1L << r;
+                words++;
+            }
+            if (chunk.flags[r] != 0)
+            {
+                flagRows |= 1L << r;
+                words++;
+            }
+        }
+
+        long[] delta = new long[words];
+        delta[0] = fullRows;
+        delta[1] = rawRows;
+        delta[2] = flagRows;
+        int at = 3;
+        for (int r = 0; r < CHUNK; r++)
+        {
+            if ((rawRows & (1L << r)) != 0) delta[at++] = chunk.revealed[r];
+        }
+        for (int r = 0; r < CHUNK; r++)
+        {
+            if ((flagRows & (1L << r)) != 0) delta[at++] = chunk.flags[r];
+        }
+        return delta;
+    }
+
+
+    private static void restore(Chunk chunk, long[] delta)
+    {
+        int at = 3;
+        for (int r = 0; r < CHUNK; r++)
+        {
+            if ((delta[0] & (1L << r)) != 0) chunk.revealed[r] = ~chunk.bombs[r];
+            else if ((delta[1] & (1L << r)) != 0) chunk.revealed[r] = delta[at++];
+            chunk.revealedCount += Long.bitCount(chunk.revealed[r]);
+        }
+        for (int r = 0; r < CHUNK; r++)
+        {
+            if ((delta[2] & (1L << r)) != 0) chunk.flags[r] = delta[at++];
+            chunk.flagCount += Long.bitCount(chunk.flags[r]);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+import java.util.Arrays;
+
+// The rules of an endless game, without any console input or output.
+// There are no edges and no win: the player opens as much of the plane as they can before hitting a bomb.
+// The game starts with an empty cell near (0, 0) already opened, found the same way for every seed.
+// Moves return a MoveResult like on a fixed-size board.
+public class EndlessGame implements AutoCloseable
+{
+    // Endless density bounds, as bombs per chunk. Below the lower one, empty areas could grow without end
+    // and a single reveal would never finish; above the upper one, there is barely a safe cell to find.
+    public static final int MIN_BOMBS_PER_CHUNK = EndlessBoard.CHUNK_CELLS / 8;
+    public static final int MAX_BOMBS_PER_CHUNK = EndlessBoard.CHUNK_CELLS / 2;
+
+    // Chunks kept in memory by default: 4096 chunks of about 1.6 KB, so a few MB. The player state of chunks left
+    // behind is capped separately, and spilled to a file past the cap (see EndlessBoard).
+    public static final int DEFAULT_MAX_CHUNKS = 4096;
+
+    private final EndlessBoard board;
+
+    private int startRow;
+    private int startCol;
+
+    private boolean lost = false;
+    private long revealedSafeCells = 0;
+    private long flaggedCells = 0;
+
+    // Reusable work stack for the flood fill, holding packed (row, col) pairs.
+    private long[] fillStack = new long[64];
+
+
+    public EndlessGame(long seed, int bombsPerChunk)
+    {
+        this(seed, bombsPerChunk, DEFAULT_MAX_CHUNKS);
+    }
+
+
+    public EndlessGame(long seed, int bombsPerChunk, int maxChunks)
+    {
+        if (bombsPerChunk < MIN_BOMBS_PER_CHUNK || bombsPerChunk > MAX_BOMBS_PER_CHUNK)
+        {
+            throw new IllegalArgumentException("Bombs per chunk must be between " + MIN_BOMBS_PER_CHUNK + " and " +
+                    MAX_BOMBS_PER_CHUNK + ": " + bombsPerChunk);
+        }
+
+        board = new EndlessBoard(seed, bombsPerChunk, maxChunks);
+        findStart();
+        uncoverNeighbors(startRow, startCol);
+    }
+
+
+    public EndlessBoard getBoard()
+    {
+        return board;
+    }
+
+
+    public int getStartRow()
+    {
+        return startRow;
+    }
+
+
+    public int getStartCol()
+    {
+        return startCol;
+    }
+
+
+    public boolean isGameOver()
+    {
+        return lost;
+    }
+
+
+    public long getRevealedSafeCells()
+    {
+        return revealedSafeCells;
+    }
+
+
+    public long getFlaggedCells()
+    {
+        return flaggedCells;
+    }
+
+
+    // Opens a cell. An empty cell opens the whole connected empty area around it, across chunk borders.
+    public MoveResult reveal(int row, int col)
+    {
+        if (lost) return new MoveResult(MoveResult.Outcome.GAME_OVER, row, col);
+        if (board.isFlagged(row, col)) return new MoveResult(MoveResult.Outcome.FLAGGED_CELL, row, col);
+        if (board.isRevealed(row, col)) return new MoveResult(MoveResult.Outcome.ALREADY_REVEALED, row, col);
+
+        if (board.isBomb(row, col))
+        {
+            lost = true;
+            return new MoveResult(MoveResult.Outcome.LOST, row, col);
+        }
+
+        int revealed = uncoverNeighbors(row, col);
+        return new MoveResult(MoveResult.Outcome.REVEALED, row, col, revealed, null);
+    }
+
+
+    // Places a flag on a closed cell, or removes it if the cell is flagged already.
+    public MoveResult flag(int row, int col)
+    {
+        if (lost) return new MoveResult(MoveResult.Outcome.GAME_OVER, row, col);
+        if (board.isRevealed(row, col)) return new MoveResult(MoveResult.Outcome.ALREADY_REVEALED, row, col);
+
+        boolean flagged = !board.isFlagged(row, col);
+        board.setFlagged(row, col, flagged);
+        flaggedCells += flagged ? 1 : -1;
+        return new MoveResult(flagged ? MoveResult.Outcome.FLAGGED : MoveResult.Outcome.UNFLAGGED, row, col);
+    }
+
+
+    // Copies the player's view of the cells from (top, left) into a fixed-size board, e.g. to draw it
+    // with the usual renderer. Bombs and counts are copied too, so the board can be shown in full after a loss.
+    public void copyView(Board target, int top, int left)
+    {
+        int size = target.getSize();
+        target.clearView();
+        target.clearBombs();
+        for (int i = 0; i < size; i++)
+        {
+            for (int j = 0; j < size; j++)
+            {
+                int row = top + i;
+                int col = left + j;
+                if (board.isBomb(row, col)) target.setBomb(i, j);
+                if (board.isRevealed(row, col)) target.setRevealed(i, j);
+                if (board.isFlagged(row, col)) target.setFlagged(i, j, true);
+                target.setCount(i, j, board.getCount(row, col));
+            }
+        }
+    }
+
+
+    // Picks the empty cell closest to (0, 0), ring by ring, so the first reveal opens an area.
+    // Cells are looked at in a fixed order, so the same seed always starts at the same cell.
+    private void findStart()
+    {
+        for (int ring = 0; ; ring++)
+        {
+            for (int row = -ring; row <= ring; row++)
+            {
+                for (int col = -ring; col <= ring; col++)
+                {
+                    if (Math.max(Math.abs(row), Math.abs(col)) != ring) continue;
+                    if (!board.isBomb(row, col) && board.getCount(row, col) == 0)
+                    {
+                        startRow = row;
+                        startCol = col;
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+
+    // Reveals the cell and, if it is empty, everything connected to it up to and including the numbered border.
+    // A plain depth-first fill over packed coordinates; the board finds the chunk of every cell, so the
+    // fill does not care where one chunk ends and the next begins.
+    // Returns the number of cells that were newly revealed.
+    private int uncoverNeighbors(int row, int col)
+    {
+        int revealed = 0;
+        int top = 0;
+        fillStack[top++] = pack(row, col);
+
+        while (top > 0)
+        {
+            long cell = fillStack[--top];
+            int r = (int) (cell >> 32);
+            int c = (int) cell;
+            if (board.isRevealed(r, c) || board.isBomb(r, c)) continue;
+
+            if (board.isFlagged(r, c))
+            {
+                board.setFlagged(r, c, false);
+                flaggedCells--;
+            }
+            board.setRevealed(r, c);
+            revealedSafeCells++;
+            revealed++;
+
+            if (board.getCount(r, c) != 0) continue;
+
+            for (int dr = -1; dr <= 1; dr++)
+            {
+                for (int dc = -1; dc <= 1; dc++)
+                {
+                    if (dr == 0 && dc == 0) continue;
+                    if (board.isRevealed(r + dr, c + dc)) continue;
+
+                    if (top == fillStack.length) fillStack = Arrays.copyOf(fillStack, top * 2);
+                    fillStack[top++] = pack(r + dr, c + dc);
+                }
+            }
+        }
+        return revealed;
+    }
+
+
+    // Deletes the board's spill file, if it has one. Called once the game is no longer played.
+    @Override
+    public void close()
+    {
+        board.close();
+    }
+
+
+    private static long pack(int row, int col)
+    {
+        return ((long) row << 32) | (col & 0xFFFFFFFFL);
+    }
+}
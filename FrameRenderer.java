@@ -0,0 +1,649 @@
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Draws whole board frames into one reusable byte buffer and sends each frame with a single write.
+// Every cell state has its bytes (color + symbol + reset + spacing) prepared in advance,
+// so drawing a cell is one array copy instead of string building and a synchronized print call.
+// In differential mode the board stays at the top of the screen and only changed cells are redrawn.
+public class FrameRenderer
+{
+    // Frames are never buffered beyond this many bytes; bigger boards are sent in pieces of this size.
+    private static final int MAX_BUFFER = 8 << 20;
+
+    // Cell states used as indexes into the byte tables below.
+    // 0: empty, 1 to 8: numbers, then closed, flag, bomb, and a hidden safe cell (for the game over board).
+    private static final int CLOSED = 9;
+    private static final int FLAG = 10;
+    private static final int BOMB = 11;
+    private static final int SAFE = 12;
+    private static final int STATES = 13;
+
+    // Where finished frames go.
+    private final WritableByteChannel out;
+
+    // The frame being built. Grows up to MAX_BUFFER and is reused for every frame.
+    private ByteBuffer frame = ByteBuffer.allocate(4096);
+
+    // cellBytes[state][0]: a cell in the first ten columns (one space after it)
+    // cellBytes[state][1]: a cell in the other columns (two spaces after it)
+    private final byte[][][] cellBytes = new byte[STATES][2][];
+
+    // The column number line, and the columns and row label width it was made for.
+    private byte[] header = new byte[0];
+    private int headerFrom = -1;
+    private int headerTo = -1;
+    private int headerLabelWidth = -1;
+
+    private static final byte[] ROW_LABEL_START = Data.CYAN.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ROW_LABEL_END = (Data.RESET + ' ').getBytes(StandardCharsets.UTF_8);
+
+    // ANSI sequences for differential mode.
+    // CLEAR_SCREEN: reset the scrolling region, move home and clear the screen
+    // SAVE_CURSOR / RESTORE_CURSOR: remember and go back to where the prompts are being printed
+    // RELEASE_SCREEN: reset the scrolling region and continue at the bottom of the screen
+    private static final byte[] CLEAR_SCREEN = "\u001B[r\u001B[H\u001B[2J".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SAVE_CURSOR = "\u001B7".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] RESTORE_CURSOR = "\u001B8".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] RELEASE_SCREEN = "\u001B[r\u001B[999;1H\n".getBytes(StandardCharsets.US_ASCII);
+
+    // Lines the game prints below the board between two frames; the terminal must fit them for in-place updates.
+    private static final int PROMPT_LINES = 8;
+
+    // Asking the terminal for its size starts a process, so the answer is kept this long between full frames.
+    // A resize shows up at the latest on the first frame after that.
+    private static final long TERMINAL_CHECK_NANOS = 1_000_000_000L;
+
+    // differential: only changed cells are redrawn once a full frame is on screen
+    // onScreen: a full differential frame is on screen, with the prompts scrolling below it
+    // screenSize, screenTerminal: board size and terminal size ("rows columns") of that frame
+    private boolean differential = false;
+    private boolean onScreen = false;
+    private int screenSize = -1;
+    private String screenTerminal = null;
+
+    // terminal, terminalKnown, terminalChecked: the last terminal size asked for (null without a terminal), whether
+    // it is still to be trusted, and when it was asked for
+    private String terminal = null;
+    private boolean terminalKnown = false;
+    private long terminalChecked = 0;
+
+    // Viewport: when it is on, only rows [viewTop, viewTop + viewRows) and columns [viewLeft, viewLeft + viewCols) are drawn.
+    private boolean viewport = false;
+    private int viewTop = 0;
+    private int viewLeft = 0;
+    private int viewRows = 20;
+    private int viewCols = 20;
+
+    // Minimap drawn under the board, or null when it is hidden.
+    private Minimap minimap = null;
+    private byte[] minimapTitle = new byte[0];
+    private int minimapTitleBlock = -1;
+
+    // Minimap characters from nothing revealed to everything revealed, and the colors of blocks in view.
+    private static final byte[] MINIMAP_SHADES = " .:+#".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MINIMAP_VIEW = Data.BG_BLUE.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MINIMAP_VIEW_END = Data.RESET.getBytes(StandardCharsets.US_ASCII);
+
+    // Cells changed since the last frame, as (row, col) pairs.
+    private int[] dirty = new int[64];
+    private int dirtyCount = 0;
+
+
+    public FrameRenderer(WritableByteChannel out, char closedSymbol, char emptySymbol, char bombSymbol, char flagSymbol)
+    {
+        this.out = out;
+        setSymbols(closedSymbol, emptySymbol, bombSymbol, flagSymbol);
+    }
+
+
+    // Channel on the process's standard output. It is never closed.
+    public static WritableByteChannel stdout()
+    {
+        return new FileOutputStream(FileDescriptor.out).getChannel();
+    }
+
+
+    // Prepares the bytes of every cell state for the given symbols.
+    public void setSymbols(char closedSymbol, char emptySymbol, char bombSymbol, char flagSymbol)
+    {
+        setCell(0, Data.BLACK + emptySymbol + Data.RESET);
+        setCell(1, Data.LIGHT_RED + 1 + Data.RESET);
+        setCell(2, Data.RED + 2 + Data.RESET);
+        setCell(3, Data.RED_DARK + 3 + Data.RESET);
+        for (int n = 4; n <= 8; n++)
+        {
+            setCell(n, Data.PURPLE + n + Data.RESET);
+        }
+        setCell(CLOSED, String.valueOf(closedSymbol));
+        setCell(FLAG, Data.YELLOW + flagSymbol + Data.RESET);
+        setCell(BOMB, Data.RED + bombSymbol + Data.RESET);
+        setCell(SAFE, String.valueOf(emptySymbol));
+    }
+
+
+    private void setCell(int state, String text)
+    {
+        cellBytes[state][0] = (text + " ").getBytes(StandardCharsets.UTF_8);
+        cellBytes[state][1] = (text + "  ").getBytes(StandardCharsets.UTF_8);
+    }
+
+
+    public boolean isDifferential()
+    {
+        return differential;
+    }
+
+
+    // Turns differential mode on or off. Either way the next frame is drawn in full.
+    public void setDifferential(boolean differential)
+    {
+        if (!differential) releaseScreen();
+        this.differential = differential;
+        invalidate();
+    }
+
+
+    // Forgets what is on screen, so the next frame is drawn in full. (e.g. after a restart)
+    public void invalidate()
+    {
+        onScreen = false;
+        terminalKnown = false;
+        dirtyCount = 0;
+    }
+
+
+    // Remembers that a cell changed since the last frame. Does nothing outside differential mode.
+    public void markDirty(int row, int col)
+    {
+        if (!differential) return;
+
+        if (dirtyCount * 2 == dirty.length) dirty = Arrays.copyOf(dirty, dirty.length * 2);
+        dirty[dirtyCount * 2] = row;
+        dirty[dirtyCount * 2 + 1] = col;
+        dirtyCount++;
+    }
+
+
+    // Gives the whole screen back to normal scrolling output. (e.g. when going back to the menu)
+    public void releaseScreen()
+    {
+        if (!onScreen) return;
+
+        frame.clear();
+        put(RELEASE_SCREEN);
+        sendFrame();
+        invalidate();
+    }
+
+
+    public boolean isViewport()
+    {
+        return viewport;
+    }
+
+
+    // Turns the viewport on or off. When it is off, the whole board is drawn.
+    public void setViewport(boolean viewport)
+    {
+        this.viewport = viewport;
+        invalidate();
+    }
+
+
+    public int getViewTop()
+    {
+        return viewTop;
+    }
+
+
+    public int getViewLeft()
+    {
+        return viewLeft;
+    }
+
+
+    public int getViewRows()
+    {
+        return viewRows;
+    }
+
+
+    public int getViewCols()
+    {
+        return viewCols;
+    }
+
+
+    // Moves the viewport so its top-left corner is at (top, left), keeping it inside a board of the given size.
+    public void moveViewport(int top, int left, int size)
+    {
+        viewTop = top;
+        viewLeft = left;
+        clampViewport(size);
+        invalidate();
+    }
+
+
+    private void clampViewport(int size)
+    {
+        viewTop = Math.max(0, Math.min(viewTop, size - Math.min(viewRows, size)));
+        viewLeft = Math.max(0, Math.min(viewLeft, size - Math.min(viewCols, size)));
+    }
+
+
+    // Shows the given minimap under the board, or hides it when null.
+    public void setMinimap(Minimap minimap)
+    {
+        this.minimap = minimap;
+        invalidate();
+    }
+
+
+    public boolean hasMinimap()
+    {
+        return minimap != null;
+    }
+
+
+    // Draws what the player sees: closed cells, flags, numbers and empty cells.
+    // With the viewport on, only the cells inside it are drawn, so the cost does not depend on the board size.
+    // In differential mode, only the cells changed since the last frame are redrawn when possible.
+    public void renderUserView(Board board)
+    {
+        if (!Metrics.ENABLED)
+        {
+            drawUserView(board);
+            return;
+        }
+
+        long start = System.nanoTime();
+        drawUserView(board);
+        Metrics.FRAME_RENDER.record(System.nanoTime() - start);
+    }
+
+
+    private void drawUserView(Board board)
+    {
+        int size = board.getSize();
+        clampViewport(size);
+
+        int top = viewport ? viewTop : 0;
+        int left = viewport ? viewLeft : 0;
+        int rows = viewport ? Math.min(viewRows, size) : size;
+        int cols = viewport ? Math.min(viewCols, size) : size;
+
+        // Lines taken by the column numbers, the rows, and the minimap with its title.
+        int height = 1 + rows + (minimap != null ? 1 + minimap.getBlocksPerRow() : 0);
+
+        String terminal = differential ? cachedTerminalSize() : null;
+        boolean fits = differential && fitsTerminal(terminal, height);
+
+        if (fits && onScreen && screenSize == size && (terminal == null || terminal.equals(screenTerminal)))
+        {
+            renderDirty(board, top, left, rows, cols);
+            return;
+        }
+
+        // The board doesn't fit the terminal any more, so draw it inline like normal output.
+        if (differential && !fits) releaseScreen();
+
+        frame.clear();
+        if (fits) put(CLEAR_SCREEN);
+        int labelWidth = labelWidth(top, rows);
+        putHeader(left, left + cols, labelWidth);
+
+        for (int i = top; i < top + rows; i++)
+        {
+            putRowLabel(i + 1, labelWidth);
+            for (int j = left; j < left + cols; j++)
+            {
+                put(cellBytes[userViewState(board, i, j)][j < 10 ? 0 : 1]);
+            }
+            putByte((byte) '\n');
+        }
+
+        if (minimap != null) putMinimap(top, left, rows, cols);
+
+        if (fits)
+        {
+            // Keep the board in place: everything printed after it scrolls in the lines below.
+            putEscape(height + 1, 'r');
+            putCursorTo(height + 1, 1);
+
+            onScreen = true;
+            screenSize = size;
+            screenTerminal = terminal;
+        }
+        dirtyCount = 0;
+
+        sendFrame();
+    }
+
+
+    // What the player sees in a cell, as an index into the byte tables.
+    private static int userViewState(Board board, int row, int col)
+    {
+        if (board.isFlagged(row, col)) return FLAG;
+        if (!board.isRevealed(row, col)) return CLOSED;
+        return board.getCount(row, col);
+    }
+
+
+    // Redraws only the changed cells inside the drawn window, each at its own screen position,
+    // and the minimap if it is shown, then puts the cursor back.
+    private void renderDirty(Board board, int top, int left, int rows, int cols)
+    {
+        if (dirtyCount == 0) return;
+
+        frame.clear();
+        put(SAVE_CURSOR);
+        int labelWidth = labelWidth(top, rows);
+        for (int k = 0; k < dirtyCount; k++)
+        {
+            int row = dirty[k * 2];
+            int col = dirty[k * 2 + 1];
+            if (row < top || row >= top + rows || col < left || col >= left + cols) continue;
+
+            // Line 1 is the column numbers; each row starts with its label and a space.
+            putCursorTo(row - top + 2, labelWidth + 1 + cellOffset(col) - cellOffset(left) + 1);
+            put(cellBytes[userViewState(board, row, col)][col < 10 ? 0 : 1]);
+        }
+
+        if (minimap != null)
+        {
+            putCursorTo(rows + 2, 1);
+            putMinimap(top, left, rows, cols);
+        }
+        put(RESTORE_CURSOR);
+        dirtyCount = 0;
+
+        sendFrame();
+    }
+
+
+    // Screen position of a column from the start of the cells: the first ten columns are two characters wide, the rest three.
+    private static int cellOffset(int col)
+    {
+        return col < 10 ? col * 2 : 20 + (col - 10) * 3;
+    }
+
+
+    // Draws the minimap: one character per block, darker for more revealed cells.
+    // Blocks that overlap the drawn window have a blue background.
+    private void putMinimap(int top, int left, int rows, int cols)
+    {
+        int block = minimap.getBlockSize();
+        int blocks = minimap.getBlocksPerRow();
+
+        put(minimapTitle(block));
+        for (int bi = 0; bi < blocks; bi++)
+        {
+            putByte((byte) ' ');
+            boolean rowInView = bi * block < top + rows && (bi + 1) * block > top;
+            for (int bj = 0; bj < blocks; bj++)
+            {
+                boolean inView = rowInView && bj * block < left + cols && (bj + 1) * block > left;
+                int shade = (int) Math.ceil(minimap.getDensity(bi, bj) * (MINIMAP_SHADES.length - 1));
+
+                if (inView) put(MINIMAP_VIEW);
+                putByte(MINIMAP_SHADES[shade]);
+                if (inView) put(MINIMAP_VIEW_END);
+            }
+            putByte((byte) '\n');
+        }
+    }
+
+
+    // Title line of the minimap, remade only when the block size changes.
+    private byte[] minimapTitle(int block)
+    {
+        if (minimapTitleBlock != block)
+        {
+            minimapTitle = (Data.CYAN + " Minimap (one character = " + block + 'x' + block + " cells)" + Data.RESET + '\n')
+                    .getBytes(StandardCharsets.UTF_8);
+            minimapTitleBlock = block;
+        }
+        return minimapTitle;
+    }
+
+
+    // Draws where the bombs are, with every other cell shown as an empty cell.
+    // Respects the viewport like the user view.
+    public void renderBoardData(Board board)
+    {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        releaseScreen();
+
+        int size = board.getSize();
+        clampViewport(size);
+
+        int top = viewport ? viewTop : 0;
+        int left = viewport ? viewLeft : 0;
+        int rows = viewport ? Math.min(viewRows, size) : size;
+        int cols = viewport ? Math.min(viewCols, size) : size;
+
+        frame.clear();
+        int labelWidth = labelWidth(top, rows);
+        putHeader(left, left + cols, labelWidth);
+
+        for (int i = top; i < top + rows; i++)
+        {
+            putRowLabel(i + 1, labelWidth);
+            for (int j = left; j < left + cols; j++)
+            {
+                put(cellBytes[board.isBomb(i, j) ? BOMB : SAFE][j < 10 ? 0 : 1]);
+            }
+            putByte((byte) '\n');
+        }
+
+        sendFrame();
+        if (Metrics.ENABLED) Metrics.FRAME_RENDER.record(System.nanoTime() - start);
+    }
+
+
+    // Width of the row labels of rows [top, top + rows): the widest row number, but at least two characters.
+    private static int labelWidth(int top, int rows)
+    {
+        return Math.max(2, digits(top + rows));
+    }
+
+
+    // Puts the column numbers of columns [from, to) in CYAN, each one over its own cell: numbers of the first ten
+    // columns end at their cell, the others start at it. "10" touches "9" like it always has, but from 100 on numbers
+    // are as wide as their cells, so one that would touch or overlap the one before is left out. Every number shown
+    // stays over its column.
+    // The line is remade only when the columns or the row label width change.
+    private void putHeader(int from, int to, int labelWidth)
+    {
+        if (headerFrom != from || headerTo != to || headerLabelWidth != labelWidth)
+        {
+            StringBuilder line = new StringBuilder();
+            int end = 0; // Characters on screen so far; escape sequences take none.
+            for (int col = from; col < to; col++)
+            {
+                String number = Integer.toString(col + 1);
+                int cell = labelWidth + 1 + cellOffset(col) - cellOffset(from);
+                int start = col < 10 ? cell - number.length() + 1 : cell;
+                if (end > 0 && (start < end || start == end && col >= 10)) continue;
+
+                while (end < start)
+                {
+                    line.append(' ');
+                    end++;
+                }
+                line.append(Data.CYAN).append(number).append(Data.RESET);
+                end += number.length();
+            }
+            line.append('\n');
+
+            header = line.toString().getBytes(StandardCharsets.UTF_8);
+            headerFrom = from;
+            headerTo = to;
+            headerLabelWidth = labelWidth;
+        }
+
+        put(header);
+    }
+
+
+    // True if the terminal is known to have room for the board and the prompts below it.
+    // When the size can't be asked for, the terminal is assumed to be big enough.
+    private static boolean fitsTerminal(String terminal, int height)
+    {
+        if (terminal == null) return true;
+
+        try
+        {
+            int rows = Integer.parseInt(terminal.substring(0, terminal.indexOf(' ')));
+            return rows >= height + PROMPT_LINES;
+        }
+        catch (RuntimeException e)
+        {
+            return true;
+        }
+    }
+
+
+    // The terminal size, asked for again only after an invalidate or once it is more than TERMINAL_CHECK_NANOS old.
+    private String cachedTerminalSize()
+    {
+        long now = System.nanoTime();
+        if (!terminalKnown || now - terminalChecked > TERMINAL_CHECK_NANOS)
+        {
+            terminal = terminalSize();
+            terminalKnown = true;
+            terminalChecked = now;
+        }
+        return terminal;
+    }
+
+
+    // Asks the terminal for its size as "rows columns", or returns null when there is no terminal to ask.
+    private static String terminalSize()
+    {
+        try
+        {
+            Process stty = new ProcessBuilder("stty", "size")
+                    .redirectInput(ProcessBuilder.Redirect.from(new File("/dev/tty")))
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            String size = new String(stty.getInputStream().readAllBytes(), StandardCharsets.US_ASCII).trim();
+            return stty.waitFor() == 0 && !size.isEmpty() ? size : null;
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+
+    private static int digits(int number)
+    {
+        int digits = 1;
+        while (number >= 10)
+        {
+            number /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+
+    // Moves the cursor to a 1-based screen line and column.
+    private void putCursorTo(int line, int column)
+    {
+        putByte((byte) 0x1B);
+        putByte((byte) '[');
+        putNumber(line);
+        putByte((byte) ';');
+        putNumber(column);
+        putByte((byte) 'H');
+    }
+
+
+    // Writes an escape sequence with one number, e.g. ESC[5r.
+    private void putEscape(int number, char command)
+    {
+        putByte((byte) 0x1B);
+        putByte((byte) '[');
+        putNumber(number);
+        putByte((byte) command);
+    }
+
+
+    // Row number in CYAN, right-aligned to the label width, followed by a space.
+    private void putRowLabel(int number, int width)
+    {
+        put(ROW_LABEL_START);
+        for (int i = digits(number); i < width; i++) putByte((byte) ' ');
+        putNumber(number);
+        put(ROW_LABEL_END);
+    }
+
+
+    private void putNumber(int number)
+    {
+        if (number >= 10) putNumber(number / 10);
+        putByte((byte) ('0' + number % 10));
+    }
+
+
+    private void put(byte[] bytes)
+    {
+        if (frame.remaining() < bytes.length) makeRoom(bytes.length);
+        frame.put(bytes);
+    }
+
+
+    private void putByte(byte b)
+    {
+        if (!frame.hasRemaining()) makeRoom(1);
+        frame.put(b);
+    }
+
+
+    // Grows the buffer, or sends what is in it once it has reached MAX_BUFFER.
+    private void makeRoom(int needed)
+    {
+        if (frame.capacity() < MAX_BUFFER)
+        {
+            int capacity = Math.min(MAX_BUFFER, Math.max(frame.capacity() * 2, frame.position() + needed));
+            ByteBuffer bigger = ByteBuffer.allocate(capacity);
+            frame.flip();
+            bigger.put(frame);
+            frame = bigger;
+        }
+        if (frame.remaining() < needed) sendFrame();
+    }
+
+
+    // Writes the frame out and empties the buffer.
+    private void sendFrame()
+    {
+        // Anything printed through System.out so far has to appear before the board.
+        System.out.flush();
+
+        frame.flip();
+        try
+        {
+            while (frame.hasRemaining()) out.write(frame);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        frame.clear();
+    }
+}
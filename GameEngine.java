@@ -0,0 +1,1052 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// The rules of the game, without any console input or output.
+// A game is played through "reveal", "flag" and "boost", which return what happened as a MoveResult.
+// The console game in Data is one client of this class; simulations and benchmarks can drive it directly.
+public class GameEngine
+{
+    // Gets told about every cell that changes, e.g. so a renderer can redraw just those cells.
+    public interface CellListener
+    {
+        void cellRevealed(int row, int col);
+
+        void cellFlagChanged(int row, int col);
+    }
+
+
+    // The size of the game board (number of rows/columns) and number of bombs.
+    private int size = 0;
+    private int numBombs = 0;
+
+    // The 3x3 area around this cell never holds a bomb, and the cell is revealed when the game starts (-1: none).
+    private int startRow = -1;
+    private int startCol = -1;
+
+    // When true, every board is one the solver can finish from the start cell without guessing.
+    private boolean noGuess = false;
+
+    // When true, bombs are placed by the first reveal, away from the cell it opens.
+    // "boardPending" is true while the current board waits for that reveal.
+    private boolean firstClickSafe = false;
+    private boolean boardPending = false;
+
+    // Ready boards built in the background, or null to build each board when a game starts.
+    private BoardPool pool;
+
+    // The game board: bombs and neighbor counts, plus which cells the player revealed or flagged.
+    private Board board;
+
+    // The openings of the board, found when it is generated. Not built for lazy boards and huge ones;
+    // revealing an empty cell then falls back to the flood fill.
+    private OpeningRegions openings = new OpeningRegions();
+
+    // True once a bomb has been revealed.
+    private boolean lost = false;
+
+    // Reveal boosts left, and how many every game starts with (used again on restart).
+    private int revealBoosts;
+    private int revealBoostsTemp;
+
+    // Closed safe cells that a reveal boost can pick from.
+    // Built on the first boost of a board, then kept current by the reveal and flag paths.
+    // Boards over SafeCellPool.MAX_CELLS are never pooled; boosts there look for a cell on the board instead.
+    private final SafeCellPool safeCells = new SafeCellPool();
+    private boolean safeCellsReady = false;
+
+    // Random cells a boost tries on an unpooled board before it walks the board for one.
+    private static final int BOOST_SAMPLES = 64;
+
+    // Picks the reveal boost targets.
+    private SplittableRandom boostRandom = new SplittableRandom();
+
+    // Listeners for changed cells, e.g. the console renderer and a solver following the game.
+    private CellListener[] listeners = new CellListener[0];
+
+    // When true, every move lists the cells it revealed in its MoveResult.
+    // The list lives in a reusable buffer while the move runs.
+    private boolean recordRevealedCells = false;
+    private int[] revealedCells = new int[64];
+    private int revealedCellCount = 0;
+
+    // Where every game and every move that changes it is recorded, or null to record nothing.
+    // "journalGame" is true while the current game is being recorded: it was started with a journal attached.
+    private MoveJournal journal;
+    private boolean journalGame = false;
+
+
+    public GameEngine()
+    {
+    }
+
+
+    // An engine whose boards and boosts are repeatable.
+    public GameEngine(long seed)
+    {
+        setSeed(seed);
+    }
+
+
+    public void addCellListener(CellListener listener)
+    {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+
+    public void removeCellListener(CellListener listener)
+    {
+        for (int i = 0; i < listeners.length; i++)
+        {
+            if (listeners[i] == listener)
+            {
+                CellListener[] rest = new CellListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, rest, 0, i);
+                System.arraycopy(listeners, i + 1, rest, i, rest.length - i);
+                listeners = rest;
+                return;
+            }
+        }
+    }
+
+
+    public void setRecordRevealedCells(boolean recordRevealedCells)
+    {
+        this.recordRevealedCells = recordRevealedCells;
+    }
+
+
+    // Records the following games into a journal (null: stop recording). See MoveJournal.
+    public void setJournal(MoveJournal journal)
+    {
+        this.journal = journal;
+    }
+
+
+    public MoveJournal getJournal()
+    {
+        return journal;
+    }
+
+
+    // Starts a new game on a fresh board.
+    // In no-guess mode the game starts with the middle cell open, and the board can be solved from there by logic alone.
+    // With first-click safety the bombs are only placed by the first reveal, around the cell it opens.
+    public void newGame(int size, int numBombs, int revealBoosts)
+    {
+        if (noGuess) setup(size, numBombs, revealBoosts, size / 2, size / 2);
+        else setup(size, numBombs, revealBoosts, -1, -1);
+
+        startBoard();
+        revealStart();
+        recordGameStart();
+    }
+
+
+    // Starts a game on the board a known board seed generates (see "getBoardSeed"), e.g. to play it again.
+    // With a start cell (row and column, or -1 for none), bombs stay out of its 3x3 area and it is revealed right away.
+    // This is how boards are generated anyway, so the same seed and start cell always give the same board.
+    public void newGame(int size, int numBombs, int revealBoosts, long boardSeed, int startRow, int startCol)
+    {
+        setup(size, numBombs, revealBoosts, startRow, startCol);
+
+        setUserViewBoard();
+        fillBoard(boardSeed);
+        revealStart();
+        recordGameStart();
+    }
+
+
+    // Starts a game whose bombs a known board seed places on the first reveal, like a lazy board would.
+    // Together with the cell of the first reveal this builds the same board again, e.g. to replay a game.
+    public void newDeferredGame(int size, int numBombs, int revealBoosts, long boardSeed)
+    {
+        setup(size, numBombs, revealBoosts, -1, -1);
+
+        setUserViewBoard();
+        deferBoard(boardSeed);
+        recordGameStart();
+    }
+
+
+    // Continues a saved game (see GameSnapshot) on the board it was saved with.
+    // revealBoosts: boosts left; initialRevealBoosts: boosts every game with these settings starts with.
+    // The counters are read off the board. Listeners are not told about the cells that were open or flagged
+    // already; they catch up the way they would for any board they did not follow from the start.
+    // The game is not recorded in the journal, since the moves before the save are not part of it.
+    public void restoreGame(Board board, int numBombs, int revealBoosts, int initialRevealBoosts, long boardSeed,
+                            int startRow, int startCol, boolean pending, boolean lost)
+    {
+        setup(board.getSize(), numBombs, initialRevealBoosts, startRow, startCol);
+        this.revealBoosts = revealBoosts;
+        this.board = board;
+        this.boardSeed = boardSeed;
+        openings.clear();
+
+        resetView();
+        this.lost = lost;
+        boardPending = pending;
+        revealedSafeCells = board.countRevealed();
+        flaggedCells = board.countFlagged();
+        closedCells = size * size - revealedSafeCells - flaggedCells;
+        journalGame = false;
+    }
+
+
+    // Starts over with the same settings on a new board.
+    public void restart()
+    {
+        if (Metrics.ENABLED) Metrics.RESTARTS.increment();
+        newGame(size, numBombs, revealBoostsTemp);
+    }
+
+
+    // Puts a fresh board in place: a ready one from the board pool if it has one, otherwise one built right here.
+    // Taking a pooled board is just a swap; the board is already generated (or blank, waiting for the first click)
+    // and has nothing revealed.
+    private void startBoard()
+    {
+        boolean lazy = firstClickSafe && startRow < 0;
+        BoardPool.Ready ready = pool != null ? pool.take(size, numBombs, noGuess, lazy) : null;
+        if (ready == null)
+        {
+            setUserViewBoard();
+            if (lazy) deferBoard(seedSource.nextLong());
+            else setBoardData();
+            return;
+        }
+
+        board = ready.board;
+        boardSeed = ready.boardSeed;
+        openings = ready.openings;
+        boardPending = lazy;
+        resetView();
+    }
+
+
+    // Leaves the board without bombs until the first reveal; the seed for them is drawn already.
+    // Lazy boards are not split into openings, since that would need every count.
+    private void deferBoard(long seed)
+    {
+        board.clearBombs();
+        openings.clear();
+        safeCellsReady = false;
+        boardSeed = seed;
+        boardPending = true;
+    }
+
+
+    // Places the bombs of a deferred board now that the first cell to open is known.
+    // The cell becomes the start cell, so its 3x3 area stays free of bombs like on a no-guess board,
+    // and "newGame" with the board seed and this start cell builds the same board again.
+    // Only the bombs are placed: counts are worked out as cells are revealed or drawn.
+    private void placeDeferredBombs(int row, int col)
+    {
+        boardPending = false;
+        startRow = row;
+        startCol = col;
+
+        placeBombs(boardSeed);
+
+        // In debug mode, make sure the counts worked out on the fly agree with "countBomb".
+        if (debugMode) verifyCounts();
+    }
+
+
+    // When true, every game places its bombs on the first reveal, so the first cell opened is never a bomb
+    // and a board costs nothing before the player moves. No-guess games start open and are not affected.
+    // Takes effect with the next "newGame".
+    public void setFirstClickSafe(boolean firstClickSafe)
+    {
+        this.firstClickSafe = firstClickSafe;
+    }
+
+
+    public boolean isFirstClickSafe()
+    {
+        return firstClickSafe;
+    }
+
+
+    // True while the current board has no bombs yet because nothing has been revealed.
+    public boolean isBoardPending()
+    {
+        return boardPending;
+    }
+
+
+    // Lets new boards come from a pool that builds them in the background (null: build every board on demand).
+    public void setBoardPool(BoardPool pool)
+    {
+        this.pool = pool;
+    }
+
+
+    // Builds a fresh board for a board pool, as "newGame" would build it, and hands it over.
+    // A lazy board is only allocated and gets its bombs on the first reveal of the engine that takes it.
+    // The engine keeps no reference to it or its openings, so the next board it builds is a new one again.
+    BoardPool.Ready buildBoard(int size, int numBombs, boolean noGuess, boolean lazy)
+    {
+        this.noGuess = noGuess;
+        if (noGuess) setup(size, numBombs, 0, size / 2, size / 2);
+        else setup(size, numBombs, 0, -1, -1);
+
+        board = null;
+        if (lazy)
+        {
+            ensureBoard();
+            openings.clear();
+            boardSeed = seedSource.nextLong();
+        }
+        else setBoardData();
+
+        BoardPool.Ready built = new BoardPool.Ready(board, boardSeed, openings);
+        board = null;
+        openings = new OpeningRegions();
+        return built;
+    }
+
+
+    private void setup(int size, int numBombs, int revealBoosts, int startRow, int startCol)
+    {
+        // Everything is checked before anything is set, so a rejected game leaves the current one as it was.
+        if (size < 1) throw new IllegalArgumentException("Board size must be at least 1: " + size);
+        if (startRow >= size || startCol >= size) throw new IllegalArgumentException("Start cell is not on the board");
+
+        // At least the start cell itself stays free of bombs (see "startArea").
+        long freeCells = (long) size * size - (startRow >= 0 ? 1 : 0);
+        if (numBombs < 0 || numBombs > freeCells)
+        {
+            throw new IllegalArgumentException("Invalid number of bombs: " + numBombs);
+        }
+
+        this.size = size;
+        this.startRow = startRow;
+        this.startCol = startCol;
+        this.numBombs = numBombs;
+        this.revealBoosts = revealBoosts;
+        this.revealBoostsTemp = revealBoosts;
+    }
+
+
+    // When true, new boards are ones the solver can finish from the start cell without guessing.
+    // Takes effect with the next "newGame".
+    public void setNoGuess(boolean noGuess)
+    {
+        this.noGuess = noGuess;
+    }
+
+
+    public boolean isNoGuess()
+    {
+        return noGuess;
+    }
+
+
+    // The cell the game starts with, or -1 if the game starts with every cell closed.
+    public int getStartRow()
+    {
+        return startRow;
+    }
+
+
+    public int getStartCol()
+    {
+        return startCol;
+    }
+
+
+    public int getSize()
+    {
+        return size;
+    }
+
+
+    public int getNumBombs()
+    {
+        return numBombs;
+    }
+
+
+    public int getRevealBoosts()
+    {
+        return revealBoosts;
+    }
+
+
+    // Reveal boosts the current game started with.
+    public int getInitialRevealBoosts()
+    {
+        return revealBoostsTemp;
+    }
+
+
+    // The board, for drawing it. Moves should go through "reveal", "flag" and "boost".
+    public Board getBoard()
+    {
+        return board;
+    }
+
+
+    public int getRevealedSafeCells()
+    {
+        return revealedSafeCells;
+    }
+
+
+    public int getFlaggedCells()
+    {
+        return flaggedCells;
+    }
+
+
+    public int getClosedCells()
+    {
+        return closedCells;
+    }
+
+
+    // True once the player revealed a bomb.
+    public boolean isGameOver()
+    {
+        return lost;
+    }
+
+
+    // True when the game has been won or lost.
+    public boolean isFinished()
+    {
+        return lost || isPlayerWin();
+    }
+
+
+    public boolean isOnBoard(int row, int col)
+    {
+        return row >= 0 && row < size && col >= 0 && col < size;
+    }
+
+
+    // Opens a cell. An empty cell opens the whole connected empty area around it.
+    public MoveResult reveal(int row, int col)
+    {
+        if (!isOnBoard(row, col)) return new MoveResult(MoveResult.Outcome.OUT_OF_RANGE, row, col);
+        if (isFinished()) return new MoveResult(MoveResult.Outcome.GAME_OVER, row, col);
+        if (board.isFlagged(row, col)) return new MoveResult(MoveResult.Outcome.FLAGGED_CELL, row, col);
+        if (board.isRevealed(row, col)) return new MoveResult(MoveResult.Outcome.ALREADY_REVEALED, row, col);
+
+        if (boardPending) placeDeferredBombs(row, col);
+
+        if (board.isBomb(row, col))
+        {
+            lost = true;
+            recordMove(MoveJournal.REVEAL, row, col);
+            return new MoveResult(MoveResult.Outcome.LOST, row, col);
+        }
+
+        revealedCellCount = 0;
+        int revealed = uncoverNeighbors(row, col);
+        recordMove(MoveJournal.REVEAL, row, col);
+        return finishReveal(row, col, revealed);
+    }
+
+
+    // Places a flag on a closed cell, or removes it if the cell is flagged already.
+    public MoveResult flag(int row, int col)
+    {
+        if (!isOnBoard(row, col)) return new MoveResult(MoveResult.Outcome.OUT_OF_RANGE, row, col);
+        if (isFinished()) return new MoveResult(MoveResult.Outcome.GAME_OVER, row, col);
+        if (board.isRevealed(row, col)) return new MoveResult(MoveResult.Outcome.ALREADY_REVEALED, row, col);
+
+        toggleFlag(row, col);
+        recordMove(MoveJournal.FLAG, row, col);
+        return new MoveResult(board.isFlagged(row, col) ? MoveResult.Outcome.FLAGGED : MoveResult.Outcome.UNFLAGGED, row, col);
+    }
+
+
+    // Uses a reveal boost to reveal a random closed safe cell.
+    // The cell is drawn from the pool of closed safe cells, so it takes constant time however few are left.
+    public MoveResult boost()
+    {
+        if (isFinished()) return new MoveResult(MoveResult.Outcome.GAME_OVER, -1, -1);
+        if (revealBoosts <= 0) return new MoveResult(MoveResult.Outcome.NO_BOOSTS, -1, -1);
+
+        // A boost before the first reveal opens a random unflagged cell, which then counts as the first click.
+        if (boardPending)
+        {
+            if (flaggedCells == size * size) return new MoveResult(MoveResult.Outcome.NOTHING_TO_REVEAL, -1, -1);
+
+            int cell;
+            do cell = boostRandom.nextInt(size * size);
+            while (board.isFlagged(cell / size, cell % size));
+            return boost(cell / size, cell % size);
+        }
+
+        int cell;
+        if ((long) size * size > SafeCellPool.MAX_CELLS) cell = findClosedSafeCell();
+        else
+        {
+            if (!safeCellsReady)
+            {
+                safeCells.fill(board);
+                safeCellsReady = true;
+            }
+            cell = safeCells.size() > 0 ? safeCells.get(boostRandom.nextInt(safeCells.size())) : -1;
+        }
+
+        // Every safe cell left is flagged, so there is nothing to reveal.
+        if (cell < 0) return new MoveResult(MoveResult.Outcome.NOTHING_TO_REVEAL, -1, -1);
+
+        int row = cell / size;
+        int col = cell % size;
+
+        revealBoosts--; // Decrease the number of available reveal boosts.
+
+        revealedCellCount = 0;
+        int revealed = uncoverNeighbors(row, col);
+        recordMove(MoveJournal.BOOST, row, col);
+        return finishReveal(row, col, revealed);
+    }
+
+
+    // A closed, unflagged safe cell for a boost on a board too big for the safe cell pool, or -1 if there is none.
+    // Random cells are tried first, which almost always finds one at once; only when few are left does it walk the
+    // board from a random cell on, 64 cells at a time, which may favor cells after long runs of open ones.
+    private int findClosedSafeCell()
+    {
+        for (int i = 0; i < BOOST_SAMPLES; i++)
+        {
+            int cell = boostRandom.nextInt(size * size);
+            int row = cell / size;
+            int col = cell % size;
+            if (!board.isBomb(row, col) && !board.isRevealed(row, col) && !board.isFlagged(row, col)) return cell;
+        }
+
+        int startRow = boostRandom.nextInt(size);
+        int startCol = boostRandom.nextInt(size);
+        for (int k = 0; k <= size; k++)
+        {
+            int row = (startRow + k) % size;
+            int col = board.nextClosedSafe(row, k == 0 ? startCol : 0);
+            if (k == size && col >= startCol) col = -1; // Back at the start row; its cells from startCol on were seen.
+            if (col >= 0) return row * size + col;
+        }
+        return -1;
+    }
+
+
+    // Uses a reveal boost on a chosen closed safe cell, e.g. the one the probability engine suggests.
+    public MoveResult boost(int row, int col)
+    {
+        if (!isOnBoard(row, col)) return new MoveResult(MoveResult.Outcome.OUT_OF_RANGE, row, col);
+        if (isFinished()) return new MoveResult(MoveResult.Outcome.GAME_OVER, row, col);
+        if (revealBoosts <= 0) return new MoveResult(MoveResult.Outcome.NO_BOOSTS, row, col);
+        if (board.isRevealed(row, col)) return new MoveResult(MoveResult.Outcome.ALREADY_REVEALED, row, col);
+        if (boardPending) placeDeferredBombs(row, col);
+        if (board.isBomb(row, col)) throw new IllegalArgumentException("A reveal boost only opens safe cells: (" + (row + 1) + ',' + (col + 1) + ')');
+
+        revealBoosts--;
+
+        revealedCellCount = 0;
+        int revealed = uncoverNeighbors(row, col);
+        recordMove(MoveJournal.BOOST, row, col);
+        return finishReveal(row, col, revealed);
+    }
+
+
+    // Counts a game that has just started, and starts recording it in the journal.
+    private void recordGameStart()
+    {
+        if (Metrics.ENABLED) Metrics.GAMES.increment();
+
+        journalGame = journal != null;
+        if (journalGame) journal.startGame(this);
+    }
+
+
+    // Counts a move that changed the game, adds it to the journal, and writes the journal out once the game is over.
+    private void recordMove(int kind, int row, int col)
+    {
+        if (Metrics.ENABLED)
+        {
+            Metrics.MOVES.increment();
+            if (kind == MoveJournal.BOOST) Metrics.BOOSTS.increment();
+        }
+
+        if (journal == null || !journalGame) return;
+
+        journal.record(kind, row, col);
+        if (isFinished()) journal.flush();
+    }
+
+
+    private MoveResult finishReveal(int row, int col, int revealed)
+    {
+        int[] cells = recordRevealedCells ? Arrays.copyOf(revealedCells, revealedCellCount) : null;
+        MoveResult.Outcome outcome = isPlayerWin() ? MoveResult.Outcome.WON : MoveResult.Outcome.REVEALED;
+        return new MoveResult(outcome, row, col, revealed, cells);
+    }
+
+
+    // Checks if the player has revealed all safe cells. (win condition).
+    // Answered from the live counters, so it costs the same on any board size.
+    // With metrics on, one check in WIN_CHECK_SAMPLE is timed: the check itself costs less than reading the clock.
+    public boolean isPlayerWin()
+    {
+        boolean timed = Metrics.ENABLED && (++winChecks & (WIN_CHECK_SAMPLE - 1)) == 0;
+        long start = timed ? System.nanoTime() : 0;
+        if (debugMode) verifyCounters();
+
+        int allCells = size * size;
+        boolean won = revealedSafeCells == (allCells) - numBombs;
+
+        if (timed) Metrics.WIN_CHECK.record(System.nanoTime() - start);
+        return won;
+    }
+
+
+    private static final int WIN_CHECK_SAMPLE = 64;
+    private int winChecks = 0;
+
+
+    // Live counters of the user view, kept up to date by the reveal and flag paths,
+    // so win checks do not have to walk the whole board.
+    // revealedSafeCells + flaggedCells + closedCells is always size * size.
+    private int revealedSafeCells = 0;
+    private int flaggedCells = 0;
+    private int closedCells = 0;
+
+    // When true, every win check compares the live counters against a full scan of the board,
+    // and every new board compares its neighbor counts against "countBomb".
+    // Enabled with -Dminesweeper.debug=true.
+    public boolean debugMode = Boolean.getBoolean("minesweeper.debug");
+
+
+    // Shows the real content of a cell to the player and updates the counters.
+    // The caller makes sure the cell is not a bomb and not revealed yet.
+    private void revealCell(int row, int col)
+    {
+        if (board.isFlagged(row, col))
+        {
+            board.setFlagged(row, col, false);
+            flaggedCells--;
+        }
+        else closedCells--;
+
+        board.setRevealed(row, col);
+        board.storeCount(row, col);
+        revealedSafeCells++;
+
+        if (safeCellsReady) safeCells.remove(row * size + col);
+        if (recordRevealedCells)
+        {
+            if (revealedCellCount == revealedCells.length) revealedCells = Arrays.copyOf(revealedCells, revealedCellCount * 2);
+            revealedCells[revealedCellCount++] = row * size + col;
+        }
+        for (CellListener listener : listeners) listener.cellRevealed(row, col);
+    }
+
+
+    // Places or removes a flag on a closed cell and updates the counters.
+    private void toggleFlag(int row, int col)
+    {
+        if (board.isFlagged(row, col))
+        {
+            board.setFlagged(row, col, false);
+            flaggedCells--;
+            closedCells++;
+
+            if (safeCellsReady && !board.isBomb(row, col)) safeCells.add(row * size + col);
+        }
+        else
+        {
+            board.setFlagged(row, col, true);
+            closedCells--;
+            flaggedCells++;
+
+            if (safeCellsReady) safeCells.remove(row * size + col);
+        }
+
+        for (CellListener listener : listeners) listener.cellFlagChanged(row, col);
+    }
+
+
+    // Recounts the user view from scratch and fails if the live counters drifted.
+    // Only used in debug mode.
+    private void verifyCounters()
+    {
+        int revealed = 0;
+        int flagged = 0;
+        int closed = 0;
+        for (int i = 0; i < size; i++)
+        {
+            for (int j = 0; j < size; j++)
+            {
+                if (board.isRevealed(i, j)) revealed++;
+                else if (board.isFlagged(i, j)) flagged++;
+                else closed++;
+            }
+        }
+
+        if (revealed != revealedSafeCells || flagged != flaggedCells || closed != closedCells)
+        {
+            throw new IllegalStateException("Board counters out of sync: revealed " + revealedSafeCells + '/' + revealed +
+                    ", flagged " + flaggedCells + '/' + flagged + ", closed " + closedCells + '/' + closed);
+        }
+    }
+
+
+    // Reusable work stack for the flood fill in "uncoverNeighbors".
+    // Holds flat cell indices (row * size + col) of span seeds and only grows when a fill needs more room.
+    private int[] fillStack = new int[64];
+
+
+    // Returns true if the player can already see what is under this cell.
+    private boolean isRevealed(int row, int col)
+    {
+        return board.isRevealed(row, col);
+    }
+
+
+    // Returns true if the cell is safe and has no bombs around it.
+    private boolean isEmptyCell(int row, int col)
+    {
+        return !board.isBomb(row, col) && board.getCount(row, col) == 0;
+    }
+
+
+    // Reveals the selected cell. If the cell is empty, the whole connected empty area and its numbered border are revealed.
+    // This is an iterative scanline fill: every popped seed is widened into a horizontal span of empty cells,
+    // and the rows above and below only push one seed per run, so no cell is revealed twice and the
+    // thread stack never grows with the size of the opening.
+    // Returns the number of cells that were newly revealed.
+    public int uncoverNeighbors(int row, int col)
+    {
+        if (!Metrics.ENABLED) return uncover(row, col);
+
+        long start = System.nanoTime();
+        int revealed = uncover(row, col);
+        Metrics.FLOOD_FILL.record(System.nanoTime() - start);
+        Metrics.FLOOD_FILL_CELLS.record(revealed);
+        return revealed;
+    }
+
+
+    private int uncover(int row, int col)
+    {
+        // If the cell is a bomb, stop right here.
+        if (board.isBomb(row, col)) return 0;
+
+        // If the cell has a number (not empty), reveal just this cell.
+        if (!isEmptyCell(row, col))
+        {
+            if (isRevealed(row, col)) return 0;
+            revealCell(row, col);
+            return 1;
+        }
+
+        // The opening of this cell is known already: reveal its list.
+        if (openings.isReady()) return revealOpening(openings.getOpening(row * size + col));
+
+        int revealed = 0;
+        int top = 0;
+        fillStack[top++] = row * size + col;
+
+        while (top > 0)
+        {
+            int cell = fillStack[--top];
+            int r = cell / size;
+            int c = cell % size;
+
+            // Another span may have reached this seed already.
+            if (isRevealed(r, c)) continue;
+
+            // Widen the seed to the left and right across closed empty cells.
+            int left = c;
+            while (left > 0 && isEmptyCell(r, left - 1) && !isRevealed(r, left - 1)) left--;
+            int right = c;
+            while (right < size - 1 && isEmptyCell(r, right + 1) && !isRevealed(r, right + 1)) right++;
+
+            // The span plus one cell on each side covers every neighbor in this row.
+            int from = Math.max(left - 1, 0);
+            int to = Math.min(right + 1, size - 1);
+
+            for (int j = from; j <= to; j++)
+            {
+                if (!isRevealed(r, j))
+                {
+                    revealCell(r, j);
+                    revealed++;
+                }
+            }
+
+            // Rows above and below: reveal numbers directly and push one seed for each run of empty cells.
+            for (int nr = r - 1; nr <= r + 1; nr += 2)
+            {
+                if (nr < 0 || nr >= size) continue;
+
+                for (int j = from; j <= to; j++)
+                {
+                    if (isRevealed(nr, j)) continue;
+
+                    if (isEmptyCell(nr, j))
+                    {
+                        if (top == fillStack.length) fillStack = Arrays.copyOf(fillStack, top * 2);
+                        fillStack[top++] = nr * size + j;
+
+                        // Skip the rest of this run, the seed will widen over it.
+                        while (j + 1 <= to && isEmptyCell(nr, j + 1) && !isRevealed(nr, j + 1)) j++;
+                    }
+                    else
+                    {
+                        revealCell(nr, j);
+                        revealed++;
+                    }
+                }
+            }
+        }
+
+        return revealed;
+    }
+
+
+    // Reveals every closed cell of an opening: its empty cells and the numbers around them.
+    private int revealOpening(int opening)
+    {
+        int revealed = 0;
+        for (int i = openings.getStart(opening); i < openings.getStart(opening + 1); i++)
+        {
+            int cell = openings.getCell(i);
+            int row = cell / size;
+            int col = cell % size;
+
+            // The empty cell and its closed neighbors; the neighbors are the opening's numbered border,
+            // or empty cells of the same opening that the loop reaches anyway.
+            for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, size - 1); r++)
+            {
+                for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, size - 1); c++)
+                {
+                    if (isRevealed(r, c)) continue;
+
+                    revealCell(r, c);
+                    revealed++;
+                }
+            }
+        }
+        return revealed;
+    }
+
+
+    // Number of openings on the board: areas that a single click on an empty cell reveals.
+    // Returns -1 while a lazy board has no bombs yet, and on boards too big to label.
+    public int getOpeningCount()
+    {
+        if (boardPending || (long) size * size > OpeningRegions.MAX_CELLS) return -1;
+        if (!openings.isReady()) openings.build(board);
+        return openings.getCount();
+    }
+
+
+    // Makes sure there is a board of the selected size, creating a new one if the size changed.
+    private void ensureBoard()
+    {
+        if (board == null || board.getSize() != size) board = new Board(size);
+    }
+
+
+    // Initializes the user view board with all cells closed.
+    public void setUserViewBoard()
+    {
+        ensureBoard();
+
+        // Close every cell and remove every flag.
+        board.clearView();
+        resetView();
+    }
+
+
+    // Resets the game state that goes with a board nobody has played on yet.
+    private void resetView()
+    {
+        safeCellsReady = false;
+        lost = false;
+
+        // Nothing is revealed or flagged on a fresh board.
+        revealedSafeCells = 0;
+        flaggedCells = 0;
+        closedCells = size * size;
+    }
+
+
+    // Initializes the board with bombs and adjacent bomb counts.
+    // A no-guess board is the first of many random boards that the solver can finish from the start cell.
+    public void setBoardData()
+    {
+        if (noGuess && startRow >= 0) fillBoard(NoGuessGenerator.findSeed(size, numBombs, startRow, startCol, seedSource.nextLong()));
+        else fillBoard(seedSource.nextLong());
+    }
+
+
+    // Builds the board a board seed generates: bombs and adjacent bomb counts.
+    private void fillBoard(long seed)
+    {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+
+        // Make sure the board has the given size and holds no bombs yet.
+        ensureBoard();
+        board.clearBombs();
+        safeCellsReady = false;
+        boardPending = false;
+
+        // Place bombs randomly on the board.
+        placeBombs(seed);
+
+        // Calculate the number of surrounding bombs for every cell. (0 means empty)
+        board.computeCounts();
+
+        // Find every opening once, so revealing an empty cell does not have to search for it.
+        if ((long) size * size <= OpeningRegions.MAX_CELLS) openings.build(board);
+        else openings.clear();
+
+        if (Metrics.ENABLED) Metrics.BOARD_GENERATION.record(System.nanoTime() - start);
+
+        // In debug mode, make sure the fast count agrees with "countBomb" on every cell.
+        if (debugMode) verifyCounts();
+    }
+
+
+    // Compares every stored neighbor count with "countBomb" and fails on the first difference.
+    // Only used in debug mode.
+    private void verifyCounts()
+    {
+        for (int i = 0; i < size; i++)
+        {
+            for (int j = 0; j < size; j++)
+            {
+                if (board.getCount(i, j) != countBomb(i, j))
+                {
+                    throw new IllegalStateException("Neighbor count mismatch at (" + (i + 1) + ',' + (j + 1) + "): " +
+                            board.getCount(i, j) + " instead of " + countBomb(i, j));
+                }
+            }
+        }
+    }
+
+
+    // Calculates the number of bombs adjacent to a given cell.
+    // Checks all 8 neighboring positions (up, down, left, right, and diagonals).
+    public int countBomb(int row, int col)
+    {
+        int bombCount = 0;
+
+        // Count bombs in all 8 adjacent cells if within bounds
+
+        if (col - 1 >= 0 && board.isBomb(row, col - 1)) bombCount++; // Check left
+        if (col + 1 < size && board.isBomb(row, col + 1)) bombCount++; // Check right
+        if (row - 1 >= 0 && board.isBomb(row - 1, col)) bombCount++; // Check top
+        if (row + 1 < size && board.isBomb(row + 1, col)) bombCount++; // Check bottom
+        if (row + 1 < size && col - 1 >= 0 && board.isBomb(row + 1, col - 1)) bombCount++; // Check bottom-left
+        if (row + 1 < size && col + 1 < size && board.isBomb(row + 1, col + 1)) bombCount++; // Check bottom-right
+        if (row - 1 >= 0 && col - 1 >= 0 && board.isBomb(row - 1, col - 1)) bombCount++; // Check top-left
+        if (row - 1 >= 0 && col + 1 < size && board.isBomb(row - 1, col + 1)) bombCount++; // Check top-right
+
+        return bombCount;
+    }
+
+
+    // Source of board seeds. Every new board draws its own seed from here, so a fixed seed
+    // ("setSeed") makes the whole sequence of boards repeatable.
+    private SplittableRandom seedSource = new SplittableRandom();
+
+    // The seed the current board was generated from.
+    private long boardSeed;
+
+    // Makes the following boards and reveal boosts repeatable.
+    public void setSeed(long seed)
+    {
+        seedSource = new SplittableRandom(seed);
+        boostRandom = seedSource.split();
+    }
+
+
+    public long getBoardSeed()
+    {
+        return boardSeed;
+    }
+
+
+    // Randomly places bombs on the game board without duplication.
+    // The openings of the old bombs no longer apply.
+    public void placeBombs()
+    {
+        openings.clear();
+        placeBombs(seedSource.nextLong());
+    }
+
+
+    // Places the bombs a board seed stands for.
+    // Uses Floyd's sampling over flat cell indices: exactly one random draw per bomb and no retries,
+    // so even a board that is almost all bombs takes O(numBombs) work. Every set of cells is equally likely.
+    // The start area is left out by sampling over the other cells only: an index is moved past every
+    // start cell at or below it, which maps the smaller index range onto the allowed cells one to one.
+    private void placeBombs(long seed)
+    {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+
+        boardSeed = seed;
+        SplittableRandom rand = new SplittableRandom(seed);
+        int[] excluded = startArea();
+        int cells = size * size - excluded.length;
+
+        for (int j = cells - numBombs; j < cells; j++)
+        {
+            // Pick a cell among the first j + 1; if it already has a bomb, take cell j instead.
+            int cell = skip(rand.nextInt(j + 1), excluded);
+            if (board.isBomb(cell / size, cell % size)) cell = skip(j, excluded);
+
+            board.setBomb(cell / size, cell % size);
+        }
+
+        if (Metrics.ENABLED) Metrics.BOMB_PLACEMENT.record(System.nanoTime() - start);
+    }
+
+
+    // The index-th allowed cell, counting past the excluded cells (sorted by index).
+    private static int skip(int index, int[] excluded)
+    {
+        for (int cell : excluded)
+        {
+            if (cell > index) break;
+            index++;
+        }
+        return index;
+    }
+
+
+    // Flat indices of the start cell and its neighbors, in order; empty if the game has no start cell.
+    // On a board too full of bombs to keep the whole area free, only the start cell itself is kept free.
+    private int[] startArea()
+    {
+        if (startRow < 0) return new int[0];
+
+        int[] area = new int[9];
+        int count = 0;
+        for (int r = Math.max(startRow - 1, 0); r <= Math.min(startRow + 1, size - 1); r++)
+        {
+            for (int c = Math.max(startCol - 1, 0); c <= Math.min(startCol + 1, size - 1); c++) area[count++] = r * size + c;
+        }
+        if (numBombs > size * size - count) return new int[] {startRow * size + startCol};
+        return Arrays.copyOf(area, count);
+    }
+
+
+    // Opens the start cell, if the game has one.
+    private void revealStart()
+    {
+        if (startRow < 0) return;
+
+        revealedCellCount = 0;
+        uncoverNeighbors(startRow, startCol);
+    }
+
+
+}
@@ -0,0 +1,166 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+// One recorded game, read from a move journal, that can be played on an engine up to any move.
+// The board is built again from the recorded board seed, so only the moves are kept: one long each.
+// Going forward plays the moves in between on the engine without drawing anything; going back starts the game
+// over and plays forward again, which is cheap since building the board is the only real work.
+// While a replay uses an engine, nothing else should move on it.
+public class GameReplay
+{
+    private final int size;
+    private final int numBombs;
+    private final int revealBoosts;
+    private final long boardSeed;
+    private final int startRow;
+    private final int startCol;
+    private final boolean deferred;
+    private final long startTime;
+
+    // moves: cell << 2 | kind, like in the journal; times: ms since the game started
+    private final long[] moves;
+    private final long[] times;
+
+    // The engine the moves are played on, and how many of them it has seen.
+    private GameEngine engine;
+    private int position;
+
+
+    // Reads the game the reader is at, up to its last move.
+    public GameReplay(JournalReader reader) throws IOException
+    {
+        size = reader.getSize();
+        numBombs = reader.getNumBombs();
+        revealBoosts = reader.getRevealBoosts();
+        boardSeed = reader.getBoardSeed();
+        startRow = reader.getStartRow();
+        startCol = reader.getStartCol();
+        deferred = reader.isDeferred();
+        startTime = reader.getStartTime();
+
+        long[] moves = new long[64];
+        long[] times = new long[64];
+        int count = 0;
+        while (reader.nextMove())
+        {
+            if (count == moves.length)
+            {
+                moves = Arrays.copyOf(moves, count * 2);
+                times = Arrays.copyOf(times, count * 2);
+            }
+            moves[count] = (long) (reader.getRow() * size + reader.getCol()) << 2 | reader.getKind();
+            times[count] = reader.getTime();
+            count++;
+        }
+        this.moves = Arrays.copyOf(moves, count);
+        this.times = Arrays.copyOf(times, count);
+    }
+
+
+    public int getSize()
+    {
+        return size;
+    }
+
+
+    public int getNumBombs()
+    {
+        return numBombs;
+    }
+
+
+    public long getBoardSeed()
+    {
+        return boardSeed;
+    }
+
+
+    // When the game started, in ms since the epoch.
+    public long getStartTime()
+    {
+        return startTime;
+    }
+
+
+    public int getMoveCount()
+    {
+        return moves.length;
+    }
+
+
+    // Number of moves played on the engine so far.
+    public int getPosition()
+    {
+        return position;
+    }
+
+
+    // Kind (MoveJournal.REVEAL, FLAG or BOOST), cell and time (ms since the game started) of a move.
+    public int getKind(int move)
+    {
+        return (int) (moves[move] & 3);
+    }
+
+
+    public int getRow(int move)
+    {
+        return (int) (moves[move] >>> 2) / size;
+    }
+
+
+    public int getCol(int move)
+    {
+        return (int) (moves[move] >>> 2) % size;
+    }
+
+
+    public long getTime(int move)
+    {
+        return times[move];
+    }
+
+
+    // Puts the engine in the state the game was in after the given number of moves (0: as it started).
+    // Returns the result of the last move played, or null if none was played.
+    public MoveResult seek(GameEngine engine, int move)
+    {
+        move = Math.max(0, Math.min(move, moves.length));
+        if (engine != this.engine || move < position) start(engine);
+
+        MoveResult result = null;
+        while (position < move) result = play(position++);
+        return result;
+    }
+
+
+    // Starts the recorded game over on the engine, on the same board.
+    private void start(GameEngine engine)
+    {
+        if (deferred) engine.newDeferredGame(size, numBombs, revealBoosts, boardSeed);
+        else engine.newGame(size, numBombs, revealBoosts, boardSeed, startRow, startCol);
+
+        this.engine = engine;
+        position = 0;
+    }
+
+
+    private MoveResult play(int move)
+    {
+        int row = getRow(move);
+        int col = getCol(move);
+        switch (getKind(move))
+        {
+            case MoveJournal.REVEAL:
+                return engine.reveal(row, col);
+
+            case MoveJournal.FLAG:
+                return engine.flag(row, col);
+
+            case MoveJournal.BOOST:
+                return engine.boost(row, col);
+
+            default:
+                throw new IllegalStateException("Unknown move kind " + getKind(move) + " at move " + move);
+        }
+    }
+}
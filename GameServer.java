@@ -0,0 +1,215 @@
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Serves many players at once over a TCP or Unix-domain socket, one GameSession per connection.
+// Every session runs on a thread of its own and simply blocks while it waits for its player. On Java 21 and later
+// those are virtual threads, so ten thousand idle sessions cost memory but no OS threads; on older runtimes they are
+// platform threads with a small stack.
+// Addresses: "7878" or "host:7878" for TCP, "unix:/path/to/socket" for a Unix-domain socket.
+public class GameServer implements AutoCloseable
+{
+    public static final String DEFAULT_ADDRESS = "127.0.0.1:7878";
+
+    // Stack of a platform session thread. A session only ever runs the engine, which does not recurse.
+    private static final long PLATFORM_STACK = 256 << 10;
+
+    private final SocketAddress address;
+    private final ServerSocketChannel server;
+    private final ThreadFactory sessionThreads = sessionThreads("session");
+    private final Thread acceptor;
+
+    private final AtomicInteger sessions = new AtomicInteger();
+    private final LongAdder connections = new LongAdder();
+    private final LongAdder games = new LongAdder();
+    private final LongAdder moves = new LongAdder();
+
+
+    // Opens the socket and starts accepting players on a thread of its own.
+    public GameServer(SocketAddress address) throws IOException
+    {
+        this.address = address;
+        if (address instanceof UnixDomainSocketAddress)
+        {
+            // A socket file left by a server that did not shut down would make the bind fail.
+            Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        }
+        else server = ServerSocketChannel.open();
+        server.bind(address, 4096);
+
+        acceptor = new Thread(this::accept, "game-server");
+        acceptor.start();
+    }
+
+
+    private void accept()
+    {
+        while (server.isOpen())
+        {
+            try
+            {
+                SocketChannel channel = server.accept();
+                connections.increment();
+                sessionThreads.newThread(new GameSession(this, channel)).start();
+            }
+            catch (IOException e)
+            {
+                if (server.isOpen()) System.err.println("Could not accept a connection: " + e.getMessage());
+            }
+        }
+    }
+
+
+    // Stops accepting players. Sessions that are running go on until their players leave.
+    @Override
+    public void close() throws IOException
+    {
+        server.close();
+        if (address instanceof UnixDomainSocketAddress) Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+    }
+
+
+    // Called by the sessions.
+    void sessionOpened()
+    {
+        sessions.incrementAndGet();
+    }
+
+
+    void sessionClosed()
+    {
+        sessions.decrementAndGet();
+    }
+
+
+    void gameStarted()
+    {
+        games.increment();
+    }
+
+
+    void moveMade()
+    {
+        moves.increment();
+    }
+
+
+    public int getSessions()
+    {
+        return sessions.get();
+    }
+
+
+    public long getConnections()
+    {
+        return connections.sum();
+    }
+
+
+    public long getGames()
+    {
+        return games.sum();
+    }
+
+
+    public long getMoves()
+    {
+        return moves.sum();
+    }
+
+
+    // "7878", "host:7878" or "unix:/path".
+    public static SocketAddress parseAddress(String text)
+    {
+        if (text.startsWith("unix:")) return UnixDomainSocketAddress.of(Path.of(text.substring("unix:".length())));
+
+        int colon = text.lastIndexOf(':');
+        if (colon < 0) return new InetSocketAddress("127.0.0.1", Integer.parseInt(text));
+        return new InetSocketAddress(text.substring(0, colon), Integer.parseInt(text.substring(colon + 1)));
+    }
+
+
+    // Makes the threads sessions (and the load client's players) run on: virtual threads where the runtime has them,
+    // platform daemon threads with a small stack otherwise. Looked up at run time, so the game still runs on Java 17.
+    static ThreadFactory sessionThreads(String name)
+    {
+        try
+        {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(Class.forName("java.lang.Thread$Builder$OfVirtual"))).invoke();
+            MethodHandle named = lookup.findVirtual(builderClass, "name", MethodType.methodType(builderClass, String.class, long.class));
+            MethodHandle factory = lookup.findVirtual(builderClass, "factory", MethodType.methodType(ThreadFactory.class));
+            return (ThreadFactory) factory.invoke(named.invoke(builder, name + "-", 0L));
+        }
+        catch (Throwable e)
+        {
+            // No virtual threads here.
+        }
+
+        AtomicInteger count = new AtomicInteger();
+        return task ->
+        {
+            Thread thread = new Thread(null, task, name + "-" + count.getAndIncrement(), PLATFORM_STACK);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+
+    // True if sessions run on virtual threads.
+    static boolean hasVirtualThreads()
+    {
+        return sessionThreads("probe").newThread(() -> { }).getClass() != Thread.class;
+    }
+
+
+    // Usage: serve [address]
+    // Serves until the process is stopped, printing the number of sessions and the move rate every five seconds.
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        SocketAddress address = parseAddress(args.length > 0 ? args[0] : DEFAULT_ADDRESS);
+        GameServer server = new GameServer(address);
+        System.out.println("Serving minesweeper on " + address + " with " +
+                (hasVirtualThreads() ? "virtual" : "platform") + " session threads.");
+
+        // Closing on Ctrl+C also removes the socket file of a Unix-domain socket.
+        Runtime.getRuntime().addShutdownHook(new Thread(() ->
+        {
+            try
+            {
+                server.close();
+            }
+            catch (IOException e)
+            {
+                // The process is going away anyway.
+            }
+        }));
+
+        long lastMoves = 0;
+        long lastTime = System.nanoTime();
+        while (true)
+        {
+            Thread.sleep(5000);
+            long moves = server.getMoves();
+            long now = System.nanoTime();
+            System.out.printf("%d sessions, %d connections, %d games, %.0f moves/sec%n", server.getSessions(),
+                    server.getConnections(), server.getGames(), (moves - lastMoves) / ((now - lastTime) / 1e9));
+            lastMoves = moves;
+            lastTime = now;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+
+// One player connected to the game server, running the line protocol on its own thread.
+// Every session has its own engine and buffers and shares nothing with the others, so sessions never wait on each other.
+// Requests and replies are one line each (rows and columns start at 1, like in the console game):
+//   NEW easy|medium|hard             -> GAME <size> <bombs> <boosts>
+//   NEW <size> <bombs> [boosts]      -> GAME <size> <bombs> <boosts>
+//   REVEAL <row> <col>               -> <outcome> <row> <col> <cells revealed>
+//   FLAG <row> <col>                 -> <outcome> <row> <col> 0
+//   BOOST                            -> <outcome> <row> <col> <cells revealed>   (row and col 0 if no cell was picked)
+//   STATUS                           -> STATUS PLAYING|WON|LOST <closed cells> <flags> <boosts left>
+//   VIEW                             -> VIEW <size>, then one line per row: '-' closed, 'F' flag, '*' bomb, '.' empty, 1-8
+//   PING                             -> PONG
+//   QUIT                             -> BYE, and the server closes the connection
+// Outcomes are the names of MoveResult.Outcome. A request that cannot be done gets "ERR <reason>".
+// The server greets every connection with "HELLO minesweeper 1". A line longer than LineChannel.MAX_LINE ends the session.
+public class GameSession implements Runnable
+{
+    public static final String GREETING = "HELLO minesweeper 1";
+
+    // Biggest board a session may ask for, so one connection cannot take the server's whole heap.
+    public static final int MAX_SIZE = 1024;
+
+    private final GameServer server;
+    private final LineChannel lines;
+
+    // Made on the first NEW, so an idle session costs only its socket, its buffers and its thread.
+    private GameEngine engine;
+    private final StringBuilder reply = new StringBuilder();
+
+
+    public GameSession(GameServer server, SocketChannel channel)
+    {
+        this.server = server;
+        this.lines = new LineChannel(channel);
+    }
+
+
+    @Override
+    public void run()
+    {
+        server.sessionOpened();
+        try (LineChannel lines = this.lines)
+        {
+            lines.write(GREETING);
+            lines.flush();
+
+            String line;
+            while ((line = lines.readLine()) != null)
+            {
+                boolean open = true;
+                try
+                {
+                    open = handle(line.trim().split("\\s+"));
+                }
+                catch (RuntimeException e)
+                {
+                    // A request the engine could not handle ends that request, not the session.
+                    lines.discard();
+                    lines.write("ERR " + e);
+                }
+                lines.flush();
+                if (!open) break;
+            }
+        }
+        catch (IOException e)
+        {
+            // The player went away, or sent something that is not a line. Either way the session is over.
+        }
+        finally
+        {
+            server.sessionClosed();
+        }
+    }
+
+
+    // Answers one request. Returns false when the session should end.
+    private boolean handle(String[] words)
+    {
+        switch (words[0].toUpperCase())
+        {
+            case "NEW":
+                newGame(words);
+                return true;
+
+            case "REVEAL":
+            case "FLAG":
+                move(words);
+                return true;
+
+            case "BOOST":
+                if (noGame()) return true;
+                writeResult(engine.boost());
+                return true;
+
+            case "STATUS":
+                if (noGame()) return true;
+                String state = engine.isGameOver() ? "LOST" : engine.isPlayerWin() ? "WON" : "PLAYING";
+                lines.write("STATUS " + state + ' ' + engine.getClosedCells() + ' ' + engine.getFlaggedCells() + ' ' + engine.getRevealBoosts());
+                return true;
+
+            case "VIEW":
+                if (noGame()) return true;
+                writeView();
+                return true;
+
+            case "PING":
+                lines.write("PONG");
+                return true;
+
+            case "QUIT":
+                lines.write("BYE");
+                return false;
+
+            default:
+                lines.write("ERR unknown request: " + words[0]);
+                return true;
+        }
+    }
+
+
+    private void newGame(String[] words)
+    {
+        int size;
+        int numBombs;
+        int revealBoosts;
+        try
+        {
+            if (words.length == 2)
+            {
+                Level level = levelByName(words[1]);
+                size = level.getSize();
+                numBombs = level.getNumBombs();
+                revealBoosts = level.getRevealBoosts();
+            }
+            else if (words.length == 3 || words.length == 4)
+            {
+                size = Integer.parseInt(words[1]);
+                numBombs = Integer.parseInt(words[2]);
+                revealBoosts = words.length == 4 ? Integer.parseInt(words[3]) : 0;
+            }
+            else throw new NumberFormatException();
+
+            if (size > MAX_SIZE) throw new IllegalArgumentException("boards are at most " + MAX_SIZE + " cells wide");
+
+            // The game is built on a fresh engine and only kept if that works, so a bad NEW leaves the game as it was.
+            GameEngine next = new GameEngine();
+            next.newGame(size, numBombs, revealBoosts);
+            engine = next;
+        }
+        catch (NumberFormatException e)
+        {
+            lines.write("ERR usage: NEW easy|medium|hard, or NEW <size> <bombs> [boosts]");
+            return;
+        }
+        catch (IllegalArgumentException e)
+        {
+            lines.write("ERR " + e.getMessage());
+            return;
+        }
+
+        server.gameStarted();
+        lines.write("GAME " + size + ' ' + numBombs + ' ' + revealBoosts);
+    }
+
+
+    private static Level levelByName(String name)
+    {
+        for (Level level : Level.values())
+        {
+            if (level.name().equalsIgnoreCase(name)) return level;
+        }
+        throw new IllegalArgumentException("unknown level: " + name);
+    }
+
+
+    private void move(String[] words)
+    {
+        if (noGame()) return;
+
+        int row;
+        int col;
+        try
+        {
+            if (words.length != 3) throw new NumberFormatException();
+            row = Integer.parseInt(words[1]) - 1;
+            col = Integer.parseInt(words[2]) - 1;
+        }
+        catch (NumberFormatException e)
+        {
+            lines.write("ERR usage: " + words[0].toUpperCase() + " <row> <col>");
+            return;
+        }
+
+        writeResult(words[0].equalsIgnoreCase("FLAG") ? engine.flag(row, col) : engine.reveal(row, col));
+    }
+
+
+    private void writeResult(MoveResult result)
+    {
+        server.moveMade();
+        reply.setLength(0);
+        reply.append(result.getOutcome().name()).append(' ')
+                .append(result.getRow() + 1).append(' ')
+                .append(result.getCol() + 1).append(' ')
+                .append(result.getRevealedCount());
+        lines.write(reply);
+    }
+
+
+    private void writeView()
+    {
+        Board board = engine.getBoard();
+        int size = engine.getSize();
+        boolean showBombs = engine.isFinished();
+
+        lines.write("VIEW " + size);
+        for (int row = 0; row < size; row++)
+        {
+            reply.setLength(0);
+            for (int col = 0; col < size; col++)
+            {
+                if (board.isFlagged(row, col)) reply.append('F');
+                else if (board.isRevealed(row, col)) reply.append(board.getCount(row, col) == 0 ? '.' : (char) ('0' + board.getCount(row, col)));
+                else if (showBombs && board.isBomb(row, col)) reply.append('*');
+                else reply.append('-');
+            }
+            lines.write(reply);
+        }
+    }
+
+
+    private boolean noGame()
+    {
+        if (engine != null) return false;
+
+        lines.write("ERR no game yet, send NEW first");
+        return true;
+    }
+}
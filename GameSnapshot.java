@@ -0,0 +1,175 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// A saved game: the board as bit layers plus the few numbers the engine needs to go on, and the symbols.
+// The file is written and read through a memory mapping, and the layers are copied in one bulk transfer
+// each, so saving or loading even a 10000x10000 board is a matter of copying about 40 MB.
+// Layout (little-endian):
+//   0   magic "MSS1"            4   version (int)          8   size (int)              12  bombs (int)
+//   16  boosts left (int)       20  boosts at start (int)  24  board seed (long)       32  start row (int)
+//   36  start column (int)      40  flags (int, see below) 44  symbols: closed, empty, bomb, flag (4 chars)
+//   52  words per layer (long)  64  bombs, revealed cells and flags, one bit per cell, each layer padded per row
+// Counts are not saved; the board works them out from the bombs when they are needed.
+public class GameSnapshot
+{
+    private static final byte[] MAGIC = {'M', 'S', 'S', '1'};
+    private static final int VERSION = 1;
+    private static final int HEADER = 64;
+
+    // Flag bits.
+    private static final int PENDING = 1;
+    private static final int LOST = 2;
+    private static final int NO_GUESS = 4;
+    private static final int FIRST_CLICK_SAFE = 8;
+
+    private final Board board;
+    private final int numBombs;
+    private final int revealBoosts;
+    private final int initialRevealBoosts;
+    private final long boardSeed;
+    private final int startRow;
+    private final int startCol;
+    private final int flags;
+    private final char[] symbols;
+
+
+    private GameSnapshot(Board board, int numBombs, int revealBoosts, int initialRevealBoosts, long boardSeed,
+                         int startRow, int startCol, int flags, char[] symbols)
+    {
+        this.board = board;
+        this.numBombs = numBombs;
+        this.revealBoosts = revealBoosts;
+        this.initialRevealBoosts = initialRevealBoosts;
+        this.boardSeed = boardSeed;
+        this.startRow = startRow;
+        this.startCol = startCol;
+        this.flags = flags;
+        this.symbols = symbols;
+    }
+
+
+    // Saves the engine's game and the symbols (closed, empty, bomb, flag) to a file.
+    // The snapshot is written next to the file first and then moved over it, so a save that fails halfway
+    // leaves the previous one as it was.
+    public static void save(Path file, GameEngine engine, char[] symbols) throws IOException
+    {
+        Board board = engine.getBoard();
+        long words = Board.layerWords(board.getSize());
+        long length = HEADER + 3 * words * Long.BYTES;
+
+        int flags = (engine.isBoardPending() ? PENDING : 0) | (engine.isGameOver() ? LOST : 0) |
+                (engine.isNoGuess() ? NO_GUESS : 0) | (engine.isFirstClickSafe() ? FIRST_CLICK_SAFE : 0);
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            out.put(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(board.getSize());
+            out.putInt(engine.getNumBombs());
+            out.putInt(engine.getRevealBoosts());
+            out.putInt(engine.getInitialRevealBoosts());
+            out.putLong(engine.getBoardSeed());
+            out.putInt(engine.getStartRow());
+            out.putInt(engine.getStartCol());
+            out.putInt(flags);
+            for (char symbol : symbols) out.putChar(symbol);
+            out.putLong(words);
+
+            board.writeLayers(out.position(HEADER).slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer());
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+
+    // Reads a saved game. Fails with an IOException if the file is not a snapshot or does not add up.
+    public static GameSnapshot load(Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            long length = channel.size();
+            if (length < HEADER) throw new IOException("Not a saved game: " + file);
+
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            in.order(ByteOrder.LITTLE_ENDIAN);
+            for (byte magic : MAGIC)
+            {
+                if (in.get() != magic) throw new IOException("Not a saved game: " + file);
+            }
+
+            int version = in.getInt();
+            if (version != VERSION) throw new IOException("Saved game version " + version + " is not supported: " + file);
+
+            int size = in.getInt();
+            int numBombs = in.getInt();
+            int revealBoosts = in.getInt();
+            int initialRevealBoosts = in.getInt();
+            long boardSeed = in.getLong();
+            int startRow = in.getInt();
+            int startCol = in.getInt();
+            int flags = in.getInt();
+            char[] symbols = new char[4];
+            for (int i = 0; i < symbols.length; i++) symbols[i] = in.getChar();
+            long words = in.getLong();
+
+            // The file size must match the board size exactly, so a cut-off file is never half loaded.
+            if (size < 1 || size > 46340 || words != Board.layerWords(size) || length != HEADER + 3 * words * Long.BYTES)
+            {
+                throw new IOException("Saved game is damaged: " + file);
+            }
+
+            Board board = new Board(size);
+            LongBuffer layers = in.position(HEADER).slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            board.readLayers(layers);
+
+            return new GameSnapshot(board, numBombs, revealBoosts, initialRevealBoosts, boardSeed, startRow, startCol, flags, symbols);
+        }
+    }
+
+
+    // Puts the saved game, with its no-guess and first-click settings, on the engine.
+    // Throws IllegalArgumentException if the saved numbers are not a valid game.
+    public void restore(GameEngine engine)
+    {
+        engine.setNoGuess((flags & NO_GUESS) != 0);
+        engine.setFirstClickSafe((flags & FIRST_CLICK_SAFE) != 0);
+        engine.restoreGame(board, numBombs, revealBoosts, initialRevealBoosts, boardSeed, startRow, startCol,
+                (flags & PENDING) != 0, (flags & LOST) != 0);
+    }
+
+
+    public int getSize()
+    {
+        return board.getSize();
+    }
+
+
+    public int getNumBombs()
+    {
+        return numBombs;
+    }
+
+
+    // Reveal boosts the saved game started with.
+    public int getInitialRevealBoosts()
+    {
+        return initialRevealBoosts;
+    }
+
+
+    // Symbols for closed, empty, bomb and flagged cells.
+    public char[] getSymbols()
+    {
+        return symbols.clone();
+    }
+}
@@ -0,0 +1,230 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Reads a move journal (see MoveJournal for the format) game by game and move by move.
+// The file is read through memory-mapped windows, so an archive of any size streams at the speed of the page
+// cache: no read calls, no copies and no objects per game or move. Only one window is mapped at a time.
+// Call "nextGame" to get to a game, then "nextMove" until it returns false.
+public class JournalReader implements AutoCloseable
+{
+    // Bytes mapped at once. A record that crosses the end of a window just maps the next one.
+    private static final long WINDOW = 64L << 20;
+
+    private final FileChannel channel;
+    private final long length;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+
+    // The current game, as its header describes it. "games" counts the headers read so far.
+    private int games = 0;
+    private int size;
+    private int numBombs;
+    private int revealBoosts;
+    private long boardSeed;
+    private int startRow;
+    private int startCol;
+    private boolean deferred;
+    private long startTime;
+
+    // The move just read, and its time in ms since the game started.
+    private int kind;
+    private int cell;
+    private long time;
+
+
+    public JournalReader(Path file) throws IOException
+    {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        length = channel.size();
+
+        for (byte magic : MoveJournal.MAGIC)
+        {
+            if (length < MoveJournal.MAGIC.length || readByte() != magic)
+            {
+                channel.close();
+                throw new IOException("Not a move journal: " + file);
+            }
+        }
+    }
+
+
+    // Skips the rest of the current game and reads the header of the next one. Returns false at the end of the file.
+    public boolean nextGame() throws IOException
+    {
+        while (position < length)
+        {
+            long record = readVarint();
+            if (record == MoveJournal.GAME)
+            {
+                readHeader();
+                return true;
+            }
+            readVarint();
+        }
+        return false;
+    }
+
+
+    // Reads the next move of the current game. Returns false when the game has no more moves.
+    public boolean nextMove() throws IOException
+    {
+        if (games == 0 || position >= length) return false;
+
+        long start = position;
+        long record = readVarint();
+        if (record == MoveJournal.GAME)
+        {
+            // The next game starts here; leave its header for "nextGame".
+            position = start;
+            return false;
+        }
+
+        kind = (int) (record & 3);
+        cell = (int) (record >>> 2);
+        time += readVarint();
+        return true;
+    }
+
+
+    // Number of the current game in the file, starting at 0.
+    public int getGameIndex()
+    {
+        return games - 1;
+    }
+
+
+    public int getSize()
+    {
+        return size;
+    }
+
+
+    public int getNumBombs()
+    {
+        return numBombs;
+    }
+
+
+    public int getRevealBoosts()
+    {
+        return revealBoosts;
+    }
+
+
+    public long getBoardSeed()
+    {
+        return boardSeed;
+    }
+
+
+    // The cell the game started with open, or -1 if it started with every cell closed.
+    public int getStartRow()
+    {
+        return startRow;
+    }
+
+
+    public int getStartCol()
+    {
+        return startCol;
+    }
+
+
+    // True if the bombs of the game were placed by its first reveal.
+    public boolean isDeferred()
+    {
+        return deferred;
+    }
+
+
+    // When the game started, in ms since the epoch.
+    public long getStartTime()
+    {
+        return startTime;
+    }
+
+
+    // The move just read: its kind (MoveJournal.REVEAL, FLAG or BOOST), its cell, and when it was made.
+    public int getKind()
+    {
+        return kind;
+    }
+
+
+    public int getRow()
+    {
+        return cell / size;
+    }
+
+
+    public int getCol()
+    {
+        return cell % size;
+    }
+
+
+    // Time of the move, in ms since the game started.
+    public long getTime()
+    {
+        return time;
+    }
+
+
+    @Override
+    public void close() throws IOException
+    {
+        window = null;
+        channel.close();
+    }
+
+
+    private void readHeader() throws IOException
+    {
+        size = (int) readVarint();
+        numBombs = (int) readVarint();
+        revealBoosts = (int) readVarint();
+
+        long seed = 0;
+        for (int i = 0; i < Long.BYTES; i++) seed = seed << 8 | readByte();
+        boardSeed = seed;
+
+        startRow = (int) readVarint() - 1;
+        startCol = (int) readVarint() - 1;
+        deferred = (readByte() & 1) != 0;
+        startTime = readVarint();
+        time = 0;
+        games++;
+    }
+
+
+    private long readVarint() throws IOException
+    {
+        long value = 0;
+        for (int shift = 0; ; shift += 7)
+        {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+            if (shift > 56) throw new IOException("Broken varint at byte " + (position - 1));
+        }
+    }
+
+
+    private int readByte() throws IOException
+    {
+        if (position >= length) throw new EOFException("The journal ends inside a record");
+
+        if (window == null || position < windowStart || position >= windowStart + window.limit())
+        {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(WINDOW, length - windowStart));
+        }
+        return window.get((int) (position++ - windowStart)) & 0xFF;
+    }
+}
@@ -0,0 +1,46 @@
+// The preset difficulty levels: board size, number of bombs and reveal boosts.
+// Shared by the console menu and the simulator, so both always play the same boards.
+public enum Level
+{
+    EASY("Easy", 9, 10, 3),
+    MEDIUM("Medium", 16, 40, 6),
+    HARD("Hard", 24, 90, 10);
+
+    private final String title;
+    private final int size;
+    private final int numBombs;
+    private final int revealBoosts;
+
+
+    Level(String title, int size, int numBombs, int revealBoosts)
+    {
+        this.title = title;
+        this.size = size;
+        this.numBombs = numBombs;
+        this.revealBoosts = revealBoosts;
+    }
+
+
+    public String getTitle()
+    {
+        return title;
+    }
+
+
+    public int getSize()
+    {
+        return size;
+    }
+
+
+    public int getNumBombs()
+    {
+        return numBombs;
+    }
+
+
+    public int getRevealBoosts()
+    {
+        return revealBoosts;
+    }
+}
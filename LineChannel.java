@@ -0,0 +1,95 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+// Text lines over a blocking socket channel, for the server protocol (see GameSession).
+// Unlike a BufferedReader over the channel's stream, which keeps two 8 KB buffers, a line channel keeps one small
+// buffer each way, so ten thousand idle sessions cost a few megabytes. Lines are ASCII and end with '\n' ('\r' is dropped).
+// Replies are collected with "write" and sent with "flush", so a multi-line reply goes out in one write.
+public class LineChannel implements AutoCloseable
+{
+    // Longest line that can be read. Nothing in the protocol comes close.
+    public static final int MAX_LINE = 256;
+
+    private final SocketChannel channel;
+    private final ByteBuffer in = ByteBuffer.allocate(MAX_LINE);
+    private ByteBuffer out = ByteBuffer.allocate(MAX_LINE);
+
+
+    public LineChannel(SocketChannel channel)
+    {
+        this.channel = channel;
+        in.flip(); // Nothing read yet.
+    }
+
+
+    // Reads the next line, without its end. Returns null when the other side has closed the connection.
+    public String readLine() throws IOException
+    {
+        int scanned = 0;
+        while (true)
+        {
+            for (int i = in.position() + scanned; i < in.limit(); i++)
+            {
+                if (in.get(i) != '\n') continue;
+
+                int end = i > in.position() && in.get(i - 1) == '\r' ? i - 1 : i;
+                String line = new String(in.array(), in.position(), end - in.position(), StandardCharsets.US_ASCII);
+                in.position(i + 1);
+                return line;
+            }
+            scanned = in.remaining();
+
+            // No full line yet: move what is there to the front and read more behind it.
+            in.compact();
+            if (!in.hasRemaining()) throw new IOException("Line longer than " + MAX_LINE + " characters");
+
+            int read = channel.read(in);
+            in.flip();
+            if (read < 0)
+            {
+                if (in.hasRemaining()) throw new EOFException("The connection closed in the middle of a line");
+                return null;
+            }
+        }
+    }
+
+
+    // Adds a line to the reply being collected.
+    public void write(CharSequence line)
+    {
+        if (out.remaining() < line.length() + 1)
+        {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + line.length() + 1));
+            out.flip();
+            out = bigger.put(out);
+        }
+        for (int i = 0; i < line.length(); i++) out.put((byte) line.charAt(i));
+        out.put((byte) '\n');
+    }
+
+
+    // Drops the lines collected since the last flush, e.g. a reply that broke off halfway.
+    public void discard()
+    {
+        out = out.capacity() > MAX_LINE ? ByteBuffer.allocate(MAX_LINE) : out.clear();
+    }
+
+
+    // Sends the lines collected so far. A buffer grown for a big reply (a whole board) is dropped again afterwards.
+    public void flush() throws IOException
+    {
+        out.flip();
+        while (out.hasRemaining()) channel.write(out);
+        out = out.capacity() > MAX_LINE ? ByteBuffer.allocate(MAX_LINE) : out.clear();
+    }
+
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+}
@@ -0,0 +1,218 @@
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Measures a game server: holds many idle sessions open while a number of players play as fast as they can.
+// Players reveal random cells and start a new game whenever one ends, waiting for every reply before the next move,
+// so the move rate is what the server sustains for that many players. At the end every idle session is pinged,
+// to show they all survived.
+public class LoadClient
+{
+    // Reply times are counted per power of two of nanoseconds: bucket b holds the times from 2^b up to 2^(b+1).
+    private static final int BUCKETS = 64;
+
+    private final SocketAddress address;
+    private final Level level;
+
+
+    public LoadClient(SocketAddress address, Level level)
+    {
+        this.address = address;
+        this.level = level;
+    }
+
+
+    public LineChannel connect() throws IOException
+    {
+        SocketChannel channel = address instanceof UnixDomainSocketAddress
+                ? SocketChannel.open(StandardProtocolFamily.UNIX) : SocketChannel.open();
+        channel.connect(address);
+
+        LineChannel lines = new LineChannel(channel);
+        String greeting = lines.readLine();
+        if (!GameSession.GREETING.equals(greeting)) throw new IOException("Not a game server: " + greeting);
+        return lines;
+    }
+
+
+    // One player: plays games until told to stop, and counts its moves, games and reply times.
+    private final class Player implements Runnable
+    {
+        private final long seed;
+        private volatile boolean running = true;
+
+        private long moves = 0;
+        private long games = 0;
+        private long maxNanos = 0;
+        private final long[] histogram = new long[BUCKETS];
+        private Exception failure;
+
+
+        Player(long seed)
+        {
+            this.seed = seed;
+        }
+
+
+        @Override
+        public void run()
+        {
+            SplittableRandom random = new SplittableRandom(seed);
+            int size = level.getSize();
+            try (LineChannel lines = connect())
+            {
+                request(lines, "NEW " + level.name());
+                games++;
+                while (running)
+                {
+                    String reply = request(lines, "REVEAL " + (random.nextInt(size) + 1) + ' ' + (random.nextInt(size) + 1));
+                    moves++;
+                    if (reply.startsWith("WON") || reply.startsWith("LOST"))
+                    {
+                        request(lines, "NEW " + level.name());
+                        games++;
+                    }
+                }
+                request(lines, "QUIT");
+            }
+            catch (IOException e)
+            {
+                failure = e;
+            }
+        }
+
+
+        private String request(LineChannel lines, String request) throws IOException
+        {
+            long start = System.nanoTime();
+            lines.write(request);
+            lines.flush();
+            String reply = lines.readLine();
+            long nanos = System.nanoTime() - start;
+
+            if (reply == null) throw new IOException("The server closed the session");
+            if (reply.startsWith("ERR")) throw new IOException("The server refused '" + request + "': " + reply);
+
+            histogram[63 - Long.numberOfLeadingZeros(Math.max(nanos, 1))]++;
+            maxNanos = Math.max(maxNanos, nanos);
+            return reply;
+        }
+    }
+
+
+    // Reply time below which the given fraction of the replies came, as the upper end of its bucket, in microseconds.
+    private static double percentile(long[] histogram, double fraction)
+    {
+        long total = 0;
+        for (long count : histogram) total += count;
+
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+        {
+            seen += histogram[bucket];
+            if (seen > 0 && seen >= fraction * total) return Math.pow(2, bucket + 1) / 1e3;
+        }
+        return 0;
+    }
+
+
+    // Usage: load [address] [sessions] [players] [seconds] [level]
+    // Opens the given number of sessions in all, of which "players" play and the rest stay idle.
+    public static void main(String[] args) throws Exception
+    {
+        SocketAddress address;
+        int sessions;
+        int players;
+        int seconds;
+        Level level;
+        try
+        {
+            address = GameServer.parseAddress(args.length > 0 ? args[0] : GameServer.DEFAULT_ADDRESS);
+            sessions = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+            players = args.length > 2 ? Integer.parseInt(args[2]) : Math.min(100, sessions);
+            seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+            level = args.length > 4 ? Level.valueOf(args[4].toUpperCase()) : Level.EASY;
+
+            if (sessions < 1) throw new IllegalArgumentException("The number of sessions must be at least 1: " + sessions);
+            if (players < 1 || players > sessions) throw new IllegalArgumentException("The number of players must be between 1 and the number of sessions: " + players);
+            if (seconds < 1) throw new IllegalArgumentException("The number of seconds must be at least 1: " + seconds);
+        }
+        catch (IllegalArgumentException e)
+        {
+            // Also catches NumberFormatException, for arguments that are not numbers, and unknown levels and bad ports.
+            System.err.println(e.getMessage());
+            System.err.println("Usage: load [address] [sessions] [players] [seconds] [easy|medium|hard]");
+            return;
+        }
+
+        LoadClient client = new LoadClient(address, level);
+        System.out.println("Loading " + address + " with " + sessions + " sessions, " + players + " of them playing " +
+                level.getTitle() + " for " + seconds + " s.");
+
+        long start = System.nanoTime();
+        List<LineChannel> idle = new ArrayList<>();
+        for (int i = players; i < sessions; i++) idle.add(client.connect());
+        System.out.printf("%d idle sessions connected in %.2f s.%n", idle.size(), (System.nanoTime() - start) / 1e9);
+
+        List<Player> playing = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < players; i++)
+        {
+            Player player = client.new Player(i);
+            Thread thread = GameServer.sessionThreads("player").newThread(player);
+            playing.add(player);
+            threads.add(thread);
+        }
+
+        start = System.nanoTime();
+        for (Thread thread : threads) thread.start();
+        Thread.sleep(seconds * 1000L);
+        for (Player player : playing) player.running = false;
+        for (Thread thread : threads) thread.join();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        long moves = 0;
+        long games = 0;
+        long maxNanos = 0;
+        long[] histogram = new long[BUCKETS];
+        int failed = 0;
+        for (Player player : playing)
+        {
+            moves += player.moves;
+            games += player.games;
+            maxNanos = Math.max(maxNanos, player.maxNanos);
+            for (int bucket = 0; bucket < BUCKETS; bucket++) histogram[bucket] += player.histogram[bucket];
+            if (player.failure != null)
+            {
+                if (failed++ == 0) System.out.println("A player failed: " + player.failure.getMessage());
+            }
+        }
+
+        // Every idle session should still be there.
+        int alive = 0;
+        for (LineChannel lines : idle)
+        {
+            try (lines)
+            {
+                lines.write("PING");
+                lines.flush();
+                if ("PONG".equals(lines.readLine())) alive++;
+            }
+            catch (IOException e)
+            {
+                // Counted as not alive.
+            }
+        }
+
+        System.out.printf("%d moves and %d games in %.2f s: %.0f moves/sec.%n", moves, games, elapsed, moves / elapsed);
+        System.out.printf("Reply time: median under %.0f us, 99%% under %.0f us, longest %.0f us.%n",
+                percentile(histogram, 0.5), percentile(histogram, 0.99), maxNanos / 1e3);
+        System.out.println(alive + " of " + idle.size() + " idle sessions answered at the end" +
+                (failed > 0 ? ", " + failed + " players failed." : "."));
+    }
+}
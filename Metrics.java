@@ -0,0 +1,358 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.ConstructorParameters;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// Timings and counts of the engine's hot paths, for finding out where the time of a session goes.
+// Off unless the game is started with -Dminesweeper.metrics=true. "ENABLED" is a static final, so with metrics off
+// the JIT drops every "if (Metrics.ENABLED)" block as dead code and the hot paths cost exactly what they did before.
+// With metrics on, a timing is two System.nanoTime calls and a few uncontended adds, and every thread can record
+// at once (the simulator, server sessions).
+// The numbers are published as the MXBean "minesweeper:type=Metrics" (see MetricsMXBean), e.g. for jconsole, and
+// with -Dminesweeper.metrics.dump=<seconds> written out as text that often, to the file named by
+// -Dminesweeper.metrics.file or else to standard error.
+public final class Metrics
+{
+    public static final boolean ENABLED = Boolean.getBoolean("minesweeper.metrics");
+
+    public static final String OBJECT_NAME = "minesweeper:type=Metrics";
+
+    // Times in nanoseconds, except for the cells per flood fill.
+    public static final Histogram BOARD_GENERATION = new Histogram("board generation", true);
+    public static final Histogram BOMB_PLACEMENT = new Histogram("bomb placement", true);
+    public static final Histogram FLOOD_FILL = new Histogram("flood fill", true);
+    public static final Histogram FLOOD_FILL_CELLS = new Histogram("cells per flood fill", false);
+    public static final Histogram WIN_CHECK = new Histogram("win check", true);
+    public static final Histogram FRAME_RENDER = new Histogram("frame render", true);
+
+    // Moves that changed a game (reveals, flags and boosts), boosts among them, restarts and games started.
+    public static final LongAdder MOVES = new LongAdder();
+    public static final LongAdder BOOSTS = new LongAdder();
+    public static final LongAdder RESTARTS = new LongAdder();
+    public static final LongAdder GAMES = new LongAdder();
+
+    private static final Histogram[] HISTOGRAMS = {BOARD_GENERATION, BOMB_PLACEMENT, FLOOD_FILL, FLOOD_FILL_CELLS, WIN_CHECK, FRAME_RENDER};
+
+    private static boolean started = false;
+
+
+    private Metrics()
+    {
+    }
+
+
+    // Values counted per power of two: bucket b holds the values from 2^(b-1) up to 2^b - 1, bucket 0 holds 0.
+    // That is all a latency needs to tell a microsecond from a millisecond, and recording is one add per value.
+    public static final class Histogram
+    {
+        private static final int BUCKETS = 65;
+
+        private final String name;
+        private final boolean nanos;
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+
+        Histogram(String name, boolean nanos)
+        {
+            this.name = name;
+            this.nanos = nanos;
+            for (int i = 0; i < BUCKETS; i++) buckets[i] = new LongAdder();
+        }
+
+
+        public void record(long value)
+        {
+            buckets[64 - Long.numberOfLeadingZeros(Math.max(value, 0))].increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+
+        public String getName()
+        {
+            return name;
+        }
+
+
+        // The numbers so far. Values recorded while this runs may or may not be in them.
+        public Summary summary()
+        {
+            long[] counts = new long[BUCKETS];
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++)
+            {
+                counts[i] = buckets[i].sum();
+                count += counts[i];
+            }
+
+            long max = this.max.get();
+            return new Summary(count, count == 0 ? 0 : (double) sum.sum() / count, percentile(counts, count, 0.5, max),
+                    percentile(counts, count, 0.9, max), percentile(counts, count, 0.99, max), max);
+        }
+
+
+        // The upper end of the bucket the given fraction of the values falls in, but no more than the largest value.
+        private static long percentile(long[] counts, long count, double fraction, long max)
+        {
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++)
+            {
+                seen += counts[i];
+                if (seen > 0 && seen >= fraction * count) return Math.min(i == 64 ? Long.MAX_VALUE : (1L << i) - 1, max);
+            }
+            return 0;
+        }
+
+
+        void reset()
+        {
+            for (LongAdder bucket : buckets) bucket.reset();
+            sum.reset();
+            max.reset();
+        }
+
+
+        String report()
+        {
+            Summary summary = summary();
+            return String.format("%-22s %10d  mean %9s  p50 %9s  p90 %9s  p99 %9s  max %9s", name, summary.getCount(),
+                    format(summary.getMean()), format(summary.getP50()), format(summary.getP90()), format(summary.getP99()),
+                    format(summary.getMax()));
+        }
+
+
+        private String format(double value)
+        {
+            if (!nanos) return value == Math.rint(value) ? String.format("%.0f", value) : String.format("%.1f", value);
+            if (value < 1e3) return String.format("%.0f ns", value);
+            if (value < 1e6) return String.format("%.1f us", value / 1e3);
+            return String.format("%.1f ms", value / 1e6);
+        }
+    }
+
+
+    // The numbers of one histogram at one moment. Shown by JMX clients as a composite value.
+    public static final class Summary
+    {
+        private final long count;
+        private final double mean;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+        private final long max;
+
+
+        @ConstructorParameters({"count", "mean", "p50", "p90", "p99", "max"})
+        public Summary(long count, double mean, long p50, long p90, long p99, long max)
+        {
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.max = max;
+        }
+
+
+        public long getCount()
+        {
+            return count;
+        }
+
+
+        public double getMean()
+        {
+            return mean;
+        }
+
+
+        public long getP50()
+        {
+            return p50;
+        }
+
+
+        public long getP90()
+        {
+            return p90;
+        }
+
+
+        public long getP99()
+        {
+            return p99;
+        }
+
+
+        public long getMax()
+        {
+            return max;
+        }
+    }
+
+
+    // Registers the MXBean and starts the periodic dump if one is asked for. Does nothing with metrics off,
+    // or when called again.
+    public static synchronized void start()
+    {
+        if (!ENABLED || started) return;
+        started = true;
+
+        try
+        {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName(OBJECT_NAME));
+        }
+        catch (JMException e)
+        {
+            System.err.println("Metrics are not published over JMX: " + e.getMessage());
+        }
+
+        long seconds = Long.getLong("minesweeper.metrics.dump", 0);
+        if (seconds <= 0) return;
+
+        String file = System.getProperty("minesweeper.metrics.file");
+        Thread dumper = new Thread(() -> dump(file, seconds), "metrics-dump");
+        dumper.setDaemon(true);
+        dumper.start();
+    }
+
+
+    private static void dump(String file, long seconds)
+    {
+        try
+        {
+            while (true)
+            {
+                Thread.sleep(seconds * 1000);
+                if (file == null) System.err.print(report());
+                else Files.writeString(Path.of(file), report(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            // Stopped.
+        }
+        catch (IOException e)
+        {
+            System.err.println("Metrics dump stopped: " + e.getMessage());
+        }
+    }
+
+
+    // Every number as text, one histogram per line.
+    public static String report()
+    {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Metrics at %.1f s: %d moves, %d boosts, %d restarts, %d games%n",
+                ManagementFactory.getRuntimeMXBean().getUptime() / 1e3, MOVES.sum(), BOOSTS.sum(), RESTARTS.sum(), GAMES.sum()));
+        for (Histogram histogram : HISTOGRAMS) report.append("  ").append(histogram.report()).append(System.lineSeparator());
+        return report.toString();
+    }
+
+
+    // Starts every number from zero again.
+    public static void reset()
+    {
+        for (Histogram histogram : HISTOGRAMS) histogram.reset();
+        MOVES.reset();
+        BOOSTS.reset();
+        RESTARTS.reset();
+        GAMES.reset();
+    }
+
+
+    // What JMX sees.
+    private static final class Bean implements MetricsMXBean
+    {
+        @Override
+        public Summary getBoardGeneration()
+        {
+            return BOARD_GENERATION.summary();
+        }
+
+
+        @Override
+        public Summary getBombPlacement()
+        {
+            return BOMB_PLACEMENT.summary();
+        }
+
+
+        @Override
+        public Summary getFloodFill()
+        {
+            return FLOOD_FILL.summary();
+        }
+
+
+        @Override
+        public Summary getFloodFillCells()
+        {
+            return FLOOD_FILL_CELLS.summary();
+        }
+
+
+        @Override
+        public Summary getWinCheck()
+        {
+            return WIN_CHECK.summary();
+        }
+
+
+        @Override
+        public Summary getFrameRender()
+        {
+            return FRAME_RENDER.summary();
+        }
+
+
+        @Override
+        public long getMoves()
+        {
+            return MOVES.sum();
+        }
+
+
+        @Override
+        public long getBoosts()
+        {
+            return BOOSTS.sum();
+        }
+
+
+        @Override
+        public long getRestarts()
+        {
+            return RESTARTS.sum();
+        }
+
+
+        @Override
+        public long getGames()
+        {
+            return GAMES.sum();
+        }
+
+
+        @Override
+        public String getReport()
+        {
+            return Metrics.report();
+        }
+
+
+        @Override
+        public void reset()
+        {
+            Metrics.reset();
+        }
+    }
+}
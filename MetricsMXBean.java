@@ -0,0 +1,30 @@
+// The engine metrics (see Metrics) as JMX shows them, under the name "minesweeper:type=Metrics".
+// Times are in nanoseconds; the flood fill cells are cells per fill.
+public interface MetricsMXBean
+{
+    Metrics.Summary getBoardGeneration();
+
+    Metrics.Summary getBombPlacement();
+
+    Metrics.Summary getFloodFill();
+
+    Metrics.Summary getFloodFillCells();
+
+    Metrics.Summary getWinCheck();
+
+    Metrics.Summary getFrameRender();
+
+    long getMoves();
+
+    long getBoosts();
+
+    long getRestarts();
+
+    long getGames();
+
+    // Every number as text, like the periodic dump.
+    String getReport();
+
+    // Starts every number from zero again.
+    void reset();
+}
@@ -0,0 +1,57 @@
+import java.util.Arrays;
+
+// Low-resolution summary of a board: how much of each square block of cells the player has revealed.
+// It is updated one reveal at a time, so drawing it never has to look at the board cells.
+public class Minimap
+{
+    // The minimap is at most this many blocks across.
+    public static final int MAX_BLOCKS = 32;
+
+    private int size = 0;
+    private int blockSize = 1;
+    private int blocksPerRow = 0;
+
+    // Number of revealed cells in every block, row by row.
+    private int[] revealed = new int[0];
+
+
+    // Starts over for a fresh board of the given size, with nothing revealed.
+    public void reset(int size)
+    {
+        this.size = size;
+        blockSize = Math.max(1, (size + MAX_BLOCKS - 1) / MAX_BLOCKS);
+        blocksPerRow = (size + blockSize - 1) / blockSize;
+
+        if (revealed.length != blocksPerRow * blocksPerRow) revealed = new int[blocksPerRow * blocksPerRow];
+        else Arrays.fill(revealed, 0);
+    }
+
+
+    // Called for every cell the player reveals.
+    public void cellRevealed(int row, int col)
+    {
+        revealed[(row / blockSize) * blocksPerRow + col / blockSize]++;
+    }
+
+
+    public int getBlockSize()
+    {
+        return blockSize;
+    }
+
+
+    public int getBlocksPerRow()
+    {
+        return blocksPerRow;
+    }
+
+
+    // Share of the block's cells that are revealed, from 0 to 1.
+    // Blocks on the right and bottom edges may be smaller than the others.
+    public double getDensity(int blockRow, int blockCol)
+    {
+        int height = Math.min(blockSize, size - blockRow * blockSize);
+        int width = Math.min(blockSize, size - blockCol * blockSize);
+        return (double) revealed[blockRow * blocksPerRow + blockCol] / (height * width);
+    }
+}
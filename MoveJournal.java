@@ -0,0 +1,138 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Records games into an append-only binary file, so any game can be played again exactly (see GameReplay).
+// A game is its board parameters and board seed, which build the same board again, followed by its moves.
+// Every number is an unsigned LEB128 varint unless noted:
+//   file: the magic bytes "MSJ1", then the games one after another
+//   game: tag 0, size, bombs, reveal boosts, board seed (8 bytes, big-endian), start row + 1, start column + 1,
+//         flags (one byte, bit 0: the bombs are placed by the first reveal), start time (ms since the epoch)
+//   move: cell << 2 | kind (kind 1: reveal, 2: flag, 3: boost; cell: row * size + column),
+//         then the milliseconds since the previous record
+// A move on a Hard board takes three to five bytes. Nothing is ever rewritten, so one file can hold any number
+// of games, and a game cut short keeps every move that was written.
+// Only moves that changed the game are recorded; a reveal of an open cell, for example, is not.
+public class MoveJournal implements AutoCloseable
+{
+    public static final byte[] MAGIC = {'M', 'S', 'J', '1'};
+
+    // Record kinds: a game header, and the three kinds of moves.
+    public static final int GAME = 0;
+    public static final int REVEAL = 1;
+    public static final int FLAG = 2;
+    public static final int BOOST = 3;
+
+    // Records collect here and are written when it fills up, when a game ends and on "flush".
+    private static final int BUFFER_SIZE = 64 << 10;
+
+    // Longest record: a game header with every varint at full length.
+    private static final int MAX_RECORD = 64;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    // Size of the board of the game being recorded, and the time of its last record.
+    private int size;
+    private long lastTime;
+
+    // The first write that failed. Recording stops there, so a full disk never stops a game.
+    private IOException failure;
+
+
+    // Opens a journal file for appending, creating it if needed.
+    public MoveJournal(Path file) throws IOException
+    {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (channel.size() == 0) buffer.put(MAGIC);
+    }
+
+
+    // Starts recording the game an engine has just started.
+    public void startGame(GameEngine engine)
+    {
+        size = engine.getSize();
+        lastTime = System.currentTimeMillis();
+
+        reserve();
+        putVarint(GAME);
+        putVarint(size);
+        putVarint(engine.getNumBombs());
+        putVarint(engine.getRevealBoosts());
+        buffer.putLong(engine.getBoardSeed());
+        putVarint(engine.getStartRow() + 1);
+        putVarint(engine.getStartCol() + 1);
+        buffer.put((byte) (engine.isBoardPending() ? 1 : 0));
+        putVarint(lastTime);
+    }
+
+
+    // Adds a move of the game being recorded.
+    public void record(int kind, int row, int col)
+    {
+        long now = System.currentTimeMillis();
+
+        reserve();
+        putVarint(((long) row * size + col) << 2 | kind);
+        putVarint(Math.max(0, now - lastTime));
+        lastTime = now;
+    }
+
+
+    // Writes everything recorded so far to the file.
+    public void flush()
+    {
+        buffer.flip();
+        try
+        {
+            while (failure == null && buffer.hasRemaining()) channel.write(buffer);
+        }
+        catch (IOException e)
+        {
+            failure = e;
+        }
+        buffer.clear();
+    }
+
+
+    // The error that stopped the recording, or null if every write worked.
+    public IOException getFailure()
+    {
+        return failure;
+    }
+
+
+    @Override
+    public void close()
+    {
+        flush();
+        try
+        {
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            if (failure == null) failure = e;
+        }
+    }
+
+
+    // Makes room for one more record.
+    private void reserve()
+    {
+        if (buffer.remaining() < MAX_RECORD) flush();
+    }
+
+
+    private void putVarint(long value)
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+}
@@ -0,0 +1,14 @@
+import java.util.SplittableRandom;
+
+// Decides how the simulator plays: every call makes one move on the engine and returns its result.
+// A policy sees the same things a player does, through the engine's board (revealed cells, numbers and flags).
+// Each simulator thread has its own policy instance, so policies may keep state between moves.
+public interface MovePolicy
+{
+    // Called before the first move of every game.
+    default void newGame(GameEngine engine)
+    {
+    }
+
+    MoveResult nextMove(GameEngine engine, SplittableRandom random);
+}
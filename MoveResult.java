@@ -0,0 +1,84 @@
+// What happened after one move of the game engine.
+public class MoveResult
+{
+    public enum Outcome
+    {
+        REVEALED,          // One or more safe cells were revealed and the game goes on.
+        WON,               // The move revealed the last safe cell.
+        LOST,              // The move hit a bomb.
+        FLAGGED,           // A flag was placed.
+        UNFLAGGED,         // A flag was removed.
+        ALREADY_REVEALED,  // The cell was already open, nothing changed.
+        FLAGGED_CELL,      // The cell has to be unmarked before it can be revealed.
+        NO_BOOSTS,         // There are no reveal boosts left.
+        NOTHING_TO_REVEAL, // Every safe cell left is flagged, so a boost has nothing to reveal.
+        OUT_OF_RANGE,      // The row or column is not on the board.
+        GAME_OVER          // The game has already been won or lost.
+    }
+
+    private static final int[] NO_CELLS = new int[0];
+
+    private final Outcome outcome;
+    private final int row;
+    private final int col;
+    private final int revealedCount;
+    private final int[] revealedCells;
+
+
+    public MoveResult(Outcome outcome, int row, int col, int revealedCount, int[] revealedCells)
+    {
+        this.outcome = outcome;
+        this.row = row;
+        this.col = col;
+        this.revealedCount = revealedCount;
+        this.revealedCells = revealedCells != null ? revealedCells : NO_CELLS;
+    }
+
+
+    // A move that changed nothing on the board.
+    public MoveResult(Outcome outcome, int row, int col)
+    {
+        this(outcome, row, col, 0, null);
+    }
+
+
+    public Outcome getOutcome()
+    {
+        return outcome;
+    }
+
+
+    // The cell the move was made on. For a boost, the cell it picked (or -1 if it picked none).
+    public int getRow()
+    {
+        return row;
+    }
+
+
+    public int getCol()
+    {
+        return col;
+    }
+
+
+    // Number of cells the move revealed.
+    public int getRevealedCount()
+    {
+        return revealedCount;
+    }
+
+
+    // Flat indices (row * size + col) of the revealed cells, in reveal order.
+    // Only filled in when the engine records revealed cells; empty otherwise.
+    public int[] getRevealedCells()
+    {
+        return revealedCells;
+    }
+
+
+    // True if the game ended with this move.
+    public boolean isGameEnd()
+    {
+        return outcome == Outcome.WON || outcome == Outcome.LOST;
+    }
+}
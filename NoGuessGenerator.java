@@ -0,0 +1,82 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Finds boards that can be won without guessing.
+// Candidate boards are drawn at random and played by the solver using forced moves only; the first one it
+// finishes is kept. Every core tries candidates at once, and all of them stop as soon as one passes.
+// Candidates are numbered and the lowest passing number wins, so the same seed always picks the same board,
+// no matter how many cores there are or how the threads happen to be scheduled.
+public class NoGuessGenerator
+{
+    // Stop looking after this many cells' worth of candidate boards; denser boards than that are hopeless.
+    private static final long MAX_WORK = 50_000_000;
+
+
+    private NoGuessGenerator()
+    {
+    }
+
+
+    // Returns the board seed of a board the solver can finish from the start cell without guessing.
+    // Pass it to "GameEngine.newGame" together with the same start cell to build that board.
+    public static long findSeed(int size, int numBombs, int startRow, int startCol, long seed)
+    {
+        int maxCandidates = (int) Math.max(1000, MAX_WORK / ((long) size * size));
+
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger found = new AtomicInteger(Integer.MAX_VALUE);
+        AtomicLong foundSeed = new AtomicLong();
+
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < ForkJoinPool.getCommonPoolParallelism(); i++)
+        {
+            workers.add(() ->
+            {
+                GameEngine engine = new GameEngine();
+                Solver solver = new Solver();
+
+                while (true)
+                {
+                    // Candidates are handed out in order, so every number below a passing one is tried too.
+                    int candidate = next.getAndIncrement();
+                    if (candidate >= maxCandidates || candidate > found.get()) return null;
+
+                    long boardSeed = candidateSeed(seed, candidate);
+                    engine.newGame(size, numBombs, 0, boardSeed, startRow, startCol);
+                    solver.newGame(engine);
+                    if (!solver.solveWithoutGuessing()) continue;
+
+                    // Keep the lowest passing number.
+                    synchronized (found)
+                    {
+                        if (candidate < found.get())
+                        {
+                            found.set(candidate);
+                            foundSeed.set(boardSeed);
+                        }
+                    }
+                }
+            });
+        }
+        ForkJoinPool.commonPool().invokeAll(workers);
+
+        if (found.get() == Integer.MAX_VALUE)
+        {
+            throw new IllegalStateException("No board with " + numBombs + " bombs on " + size + 'x' + size +
+                    " could be solved without guessing after " + maxCandidates + " tries");
+        }
+        return foundSeed.get();
+    }
+
+
+    // The board seed of a candidate: a well mixed number that only depends on the run seed and the candidate number.
+    private static long candidateSeed(long seed, int candidate)
+    {
+        return new SplittableRandom(seed + candidate).nextLong();
+    }
+}
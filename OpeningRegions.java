@@ -0,0 +1,185 @@
+import java.util.Arrays;
+
+// Every opening of a board, found once when the board is generated.
+// An opening is a connected area of empty cells (diagonal neighbors included). Revealing any one of its
+// empty cells uncovers all of them plus the numbered cells around them, so revealing an empty cell is a walk
+// over a known list instead of a flood fill, and the number of openings comes for free.
+// label: for every cell, the opening its empty cell belongs to, or -1 for numbered cells and bombs
+// start, cells: the empty cells of opening k are cells[start[k]] .. cells[start[k + 1] - 1], in row order
+// The numbered border is not listed: it is just the closed neighbors of the listed cells, and finding it
+// here took longer than the walk itself saves.
+// The empty areas are found with union-find over the flat cell indices, in two passes over the board.
+public class OpeningRegions
+{
+    // Boards with more cells than this are not labeled; the arrays would take too much memory.
+    public static final long MAX_CELLS = 1L << 24;
+
+    private int[] label = new int[0];
+    private int[] start = new int[1];
+    private int[] cells = new int[0];
+    private int count = 0;
+    private boolean ready = false;
+
+    // Scratch space of "build": where the next cell of every opening goes in the list.
+    private int[] next = new int[0];
+
+
+    // Most heap the openings of a board of the given size can take, e.g. to budget how many to keep around:
+    // a label per cell, at most every cell listed, and "start" and "next" per opening. Openings never touch, so
+    // there are at most one per 2x2 block of cells. Boards too big to label take nothing.
+    public static long bytesFor(int size)
+    {
+        long allCells = (long) size * size;
+        if (allCells > MAX_CELLS) return 0;
+
+        long maxOpenings = (long) ((size + 1) / 2) * ((size + 1) / 2);
+        return (2 * allCells + 2 * (maxOpenings + 1)) * Integer.BYTES;
+    }
+
+
+    // Finds the openings of a board whose neighbor counts are known.
+    public void build(Board board)
+    {
+        int size = board.getSize();
+        int allCells = size * size;
+        if (label.length != allCells) label = new int[allCells];
+
+        // Mark the empty cells: each starts as a set of its own, every other cell is -1.
+        for (int i = 0; i < size; i++)
+        {
+            for (int j = 0; j < size; j++)
+            {
+                int cell = i * size + j;
+                label[cell] = isEmpty(board, i, j) ? cell : -1;
+            }
+        }
+
+        // Union pass: every empty cell joins the empty cells before it among its neighbors (left, and the
+        // three above). Neighbors that touch each other are in one set already, so at most two unions are
+        // needed: the cell above touches all three others, and the left one touches the one above it.
+        // Sets are linked to their smaller root, so a root is always the first cell of its set in row order.
+        for (int i = 0; i < size; i++)
+        {
+            for (int j = 0; j < size; j++)
+            {
+                int cell = i * size + j;
+                if (label[cell] < 0) continue;
+
+                boolean left = j > 0 && label[cell - 1] >= 0;
+                if (i > 0 && label[cell - size] >= 0)
+                {
+                    union(cell, cell - size);
+                    continue;
+                }
+
+                if (left) union(cell, cell - 1);
+                else if (i > 0 && j > 0 && label[cell - size - 1] >= 0) union(cell, cell - size - 1);
+                if (i > 0 && j < size - 1 && label[cell - size + 1] >= 0) union(cell, cell - size + 1);
+            }
+        }
+
+        // Labeling pass: parents always come before their children in row order, so by the time a cell is
+        // reached its parent already holds the number of the opening. Numbers are stored as -(k + 2)
+        // while the pass runs, so they never look like a cell index.
+        count = 0;
+        for (int cell = 0; cell < allCells; cell++)
+        {
+            int parent = label[cell];
+            if (parent < 0) continue;
+
+            if (parent == cell) label[cell] = -(count++ + 2);
+            else label[cell] = label[parent];
+        }
+
+        // Decode the numbers and count the empty cells of every opening into start[k + 1].
+        if (start.length < count + 1) start = new int[count + 1];
+        Arrays.fill(start, 0, count + 1, 0);
+        for (int cell = 0; cell < allCells; cell++)
+        {
+            int code = label[cell];
+            label[cell] = code <= -2 ? -code - 2 : -1;
+            if (code <= -2) start[-code - 1]++;
+        }
+
+        // List the cells in row order, each at its opening's next free place.
+        for (int k = 0; k < count; k++) start[k + 1] += start[k];
+        if (cells.length < start[count]) cells = new int[start[count]];
+        if (next.length < count) next = new int[count];
+        System.arraycopy(start, 0, next, 0, count);
+
+        for (int cell = 0; cell < allCells; cell++)
+        {
+            if (label[cell] >= 0) cells[next[label[cell]]++] = cell;
+        }
+
+        ready = true;
+    }
+
+
+    // Forgets the openings, e.g. when the board changes in a way they were not built for.
+    public void clear()
+    {
+        ready = false;
+    }
+
+
+    public boolean isReady()
+    {
+        return ready;
+    }
+
+
+    // Number of openings on the board.
+    public int getCount()
+    {
+        return count;
+    }
+
+
+    // The opening an empty cell belongs to, or -1 if the cell is not empty.
+    public int getOpening(int cell)
+    {
+        return label[cell];
+    }
+
+
+    // First position of the opening's cells in the list; the opening ends where the next one starts.
+    public int getStart(int opening)
+    {
+        return start[opening];
+    }
+
+
+    public int getCell(int index)
+    {
+        return cells[index];
+    }
+
+
+    private static boolean isEmpty(Board board, int row, int col)
+    {
+        return !board.isBomb(row, col) && board.getCount(row, col) == 0;
+    }
+
+
+    // Root of a set, halving the path on the way.
+    private int find(int cell)
+    {
+        while (label[cell] != cell)
+        {
+            label[cell] = label[label[cell]];
+            cell = label[cell];
+        }
+        return cell;
+    }
+
+
+    // Joins two sets under the smaller of their roots.
+    private void union(int a, int b)
+    {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA < rootB) label[rootB] = rootA;
+        else if (rootB < rootA) label[rootA] = rootB;
+    }
+}
@@ -0,0 +1,837 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinTask;
+
+// Exact chance of a bomb under every closed cell, from what the player can see.
+// Closed cells next to a number are split into independent components: cells are in the same component when
+// a number touches both. Each component is counted on its own: how many bomb layouts fit its numbers, for every
+// number of bombs in it, and how many of those have a bomb on each of its cells. The layouts are counted one cell
+// at a time, merging partial layouts that leave the open numbers with the same bombs still to place, so a long
+// frontier costs about its length instead of 2 to the power of its length.
+// The components are then weighted together with the cells no number touches, which share the rest of the bombs.
+// Counted components are kept until a reveal touches one of their cells, so a new hint only counts what changed.
+// Flags are the player's opinion and are ignored.
+public class ProbabilityEngine implements GameEngine.CellListener
+{
+    private final GameEngine engine;
+    private Board board;
+    private int size;
+    private long boardSeed;
+
+    // Number of revealed cells the engine has been told about; a different count means some reveals were missed.
+    private int seenRevealed;
+
+    // Component of every closed cell next to a number and of every number touching a closed cell, or null.
+    // Entries of components that were dropped stay until the cell is claimed again; check "live".
+    private Component[] owner = new Component[0];
+
+    // Components that are still valid, and numbers whose component has to be built again.
+    private final List<Component> components = new ArrayList<>();
+    private final CellQueue pending = new CellQueue();
+
+    // Results of the last "compute": bomb chance of every component cell, and of every cell no number touches.
+    private double[] probability = new double[0];
+    private double interiorProbability;
+
+    // Cells before this one are known not to be interior cells (closed cells with no revealed neighbor).
+    private int interiorCursor;
+
+
+    // Follows the given engine. Nothing is computed until the first call to "compute".
+    public ProbabilityEngine(GameEngine engine)
+    {
+        this.engine = engine;
+        engine.addCellListener(this);
+    }
+
+
+    @Override
+    public void cellRevealed(int row, int col)
+    {
+        // Reveals on a board the engine is not following yet are picked up by "sync".
+        if (board == null || board != engine.getBoard() || boardSeed != engine.getBoardSeed()) return;
+
+        seenRevealed++;
+
+        // The revealed cell and its neighbors may belong to components whose counts are now out of date.
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, size - 1); r++)
+        {
+            for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, size - 1); c++)
+            {
+                Component component = owner[r * size + c];
+                if (component != null && component.live) drop(component);
+            }
+        }
+
+        if (board.getCount(row, col) > 0) pending.push(row * size + col);
+    }
+
+
+    @Override
+    public void cellFlagChanged(int row, int col)
+    {
+    }
+
+
+    // Brings every bomb chance up to date with the board.
+    public void compute()
+    {
+        sync();
+
+        // Build components for the numbers whose surroundings changed, and count them (in parallel if there are several).
+        List<Component> fresh = new ArrayList<>();
+        while (!pending.isEmpty())
+        {
+            int number = pending.pop();
+            Component current = owner[number];
+            if ((current != null && current.live) || !isConstraint(number)) continue;
+
+            fresh.add(build(number));
+        }
+        // Building a component can take cells from one built just before, which then has to go.
+        fresh.removeIf(component -> !component.live);
+
+        if (fresh.size() == 1) fresh.get(0).count(board, size);
+        else if (fresh.size() > 1)
+        {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (Component component : fresh) tasks.add(ForkJoinTask.adapt(() -> component.count(board, size)));
+            ForkJoinTask.invokeAll(tasks);
+        }
+
+        components.removeIf(component -> !component.live);
+        components.addAll(fresh);
+
+        combine();
+    }
+
+
+    // Chance of a bomb under the cell, as of the last "compute". Revealed cells have none.
+    public double getProbability(int row, int col)
+    {
+        if (board.isRevealed(row, col)) return 0;
+
+        int cell = row * size + col;
+        Component component = owner[cell];
+        if (component != null && component.live) return probability[cell];
+        return interiorProbability;
+    }
+
+
+    // Chance of a bomb under any closed cell that no number touches.
+    public double getInteriorProbability()
+    {
+        return interiorProbability;
+    }
+
+
+    // The closed, unflagged cell with the lowest chance of a bomb, or -1 if there is none.
+    // A cell next to a number wins ties against the cells no number touches, since it is more likely to open up more.
+    public int getSafestCell()
+    {
+        int best = -1;
+        double bestChance = 2;
+
+        for (Component component : components)
+        {
+            for (int cell : component.cells)
+            {
+                if (board.isFlagged(cell / size, cell % size)) continue;
+                if (probability[cell] < bestChance)
+                {
+                    bestChance = probability[cell];
+                    best = cell;
+                }
+            }
+        }
+
+        int interior = nextInteriorCell(false);
+        if (interior >= 0 && interiorProbability < bestChance) best = interior;
+        return best;
+    }
+
+
+    // The closed, unflagged safe cell the player is least sure about, or -1 if there is none.
+    // This is where a reveal boost helps most: it takes the risk the player would otherwise have to take.
+    // Unlike the other methods this one looks at where the bombs really are, so it is only for boosts.
+    public int getBoostCell()
+    {
+        int best = -1;
+        double bestChance = -1;
+
+        for (Component component : components)
+        {
+            for (int cell : component.cells)
+            {
+                int row = cell / size;
+                int col = cell % size;
+                if (board.isFlagged(row, col) || board.isBomb(row, col)) continue;
+                if (probability[cell] > bestChance)
+                {
+                    bestChance = probability[cell];
+                    best = cell;
+                }
+            }
+        }
+
+        if (best < 0 || interiorProbability > bestChance)
+        {
+            int interior = nextInteriorCell(true);
+            if (interior >= 0) best = interior;
+        }
+        return best;
+    }
+
+
+    // Starts over if the engine moved on to another board or revealed cells this engine was not told about.
+    private void sync()
+    {
+        if (board == engine.getBoard() && size == engine.getSize() && boardSeed == engine.getBoardSeed() &&
+                seenRevealed == engine.getRevealedSafeCells())
+        {
+            return;
+        }
+
+        board = engine.getBoard();
+        size = engine.getSize();
+        boardSeed = engine.getBoardSeed();
+        seenRevealed = engine.getRevealedSafeCells();
+
+        int cells = size * size;
+        if (owner.length != cells)
+        {
+            owner = new Component[cells];
+            probability = new double[cells];
+        }
+        else Arrays.fill(owner, null);
+
+        components.clear();
+        pending.reset(cells);
+        interiorCursor = 0;
+
+        for (int i = 0; i < size; i++)
+        {
+            for (int j = 0; j < size; j++)
+            {
+                if (board.isRevealed(i, j) && board.getCount(i, j) > 0) pending.push(i * size + j);
+            }
+        }
+    }
+
+
+    // A component is dropped when a reveal touches it; its numbers get a new component on the next "compute".
+    private void drop(Component component)
+    {
+        component.live = false;
+        for (int number : component.numbers) pending.push(number);
+    }
+
+
+    // True for a revealed number that still touches a closed cell.
+    private boolean isConstraint(int cell)
+    {
+        int row = cell / size;
+        int col = cell % size;
+        if (!board.isRevealed(row, col) || board.getCount(row, col) == 0) return false;
+
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, size - 1); r++)
+        {
+            for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, size - 1); c++)
+            {
+                if (!board.isRevealed(r, c)) return true;
+            }
+        }
+        return false;
+    }
+
+
+    // Collects the component of a number: its closed neighbors, the numbers touching those, and so on.
+    // Cells are listed in the order they are found, which keeps neighbors close together in the list.
+    private Component build(int start)
+    {
+        Component component = new Component();
+        int[] cells = new int[16];
+        int cellCount = 0;
+        int[] numbers = new int[16];
+        int numberCount = 0;
+
+        owner[start] = component;
+        numbers[numberCount++] = start;
+
+        for (int next = 0; next < numberCount; next++)
+        {
+            int number = numbers[next];
+            int row = number / size;
+            int col = number % size;
+
+            for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, size - 1); r++)
+            {
+                for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, size - 1); c++)
+                {
+                    int cell = r * size + c;
+                    if (board.isRevealed(r, c) || owner[cell] == component) continue;
+
+                    claim(cell);
+                    owner[cell] = component;
+                    if (cellCount == cells.length) cells = Arrays.copyOf(cells, cellCount * 2);
+                    cells[cellCount++] = cell;
+
+                    // Every number next to this cell belongs to the component too.
+                    for (int nr = Math.max(r - 1, 0); nr <= Math.min(r + 1, size - 1); nr++)
+                    {
+                        for (int nc = Math.max(c - 1, 0); nc <= Math.min(c + 1, size - 1); nc++)
+                        {
+                            int other = nr * size + nc;
+                            if (!board.isRevealed(nr, nc) || board.getCount(nr, nc) == 0 || owner[other] == component) continue;
+
+                            claim(other);
+                            owner[other] = component;
+                            if (numberCount == numbers.length) numbers = Arrays.copyOf(numbers, numberCount * 2);
+                            numbers[numberCount++] = other;
+                        }
+                    }
+                }
+            }
+        }
+
+        component.cells = Arrays.copyOf(cells, cellCount);
+        component.numbers = Arrays.copyOf(numbers, numberCount);
+        return component;
+    }
+
+
+    // A cell joining a new component leaves its old one. That only happens if a reveal should have dropped it anyway.
+    private void claim(int cell)
+    {
+        Component old = owner[cell];
+        if (old != null && old.live) drop(old);
+    }
+
+
+    // Weights the components against each other and against the cells no number touches.
+    // With B bombs in the components, the other cells hold the rest, in C(interior cells, bombs - B) ways.
+    // The components' bomb counts are multiplied together in a balanced tree; walking back down the tree gives,
+    // for every component, the weight of each of its bomb counts when all the other components are summed out.
+    private void combine()
+    {
+        int bombs = engine.getNumBombs();
+        int interior = size * size - engine.getRevealedSafeCells();
+        for (Component component : components) interior -= component.cells.length;
+
+        int count = components.size();
+        double[][] tree = new double[Math.max(1, 4 * count)][];
+        double[] product = count == 0 ? new double[] {1} : multiply(tree, 1, 0, count);
+
+        // weights[m]: ways to place the remaining bombs on the interior cells when the components hold m bombs.
+        double[] weights = interiorWeights(product, bombs, interior);
+
+        double total = 0;
+        double interiorBombs = 0;
+        for (int m = 0; m < product.length; m++)
+        {
+            double share = product[m] * weights[m];
+            total += share;
+            interiorBombs += share * (bombs - m);
+        }
+        if (total == 0) throw new IllegalStateException("No bomb layout fits the numbers on the board");
+
+        interiorProbability = interior > 0 ? interiorBombs / total / interior : 0;
+        if (count > 0) spread(tree, 1, 0, count, weights, total);
+    }
+
+
+    private double[] multiply(double[][] tree, int node, int from, int to)
+    {
+        if (to - from == 1) tree[node] = components.get(from).counts;
+        else
+        {
+            int middle = (from + to) >>> 1;
+            tree[node] = convolve(multiply(tree, 2 * node, from, middle), multiply(tree, 2 * node + 1, middle, to));
+        }
+        return tree[node];
+    }
+
+
+    // Hands every component the weight of each of its bomb counts, and turns that into the chance of each cell.
+    private void spread(double[][] tree, int node, int from, int to, double[] weights, double total)
+    {
+        if (to - from == 1)
+        {
+            Component component = components.get(from);
+            for (int i = 0; i < component.cells.length; i++) probability[component.cells[i]] = component.bombCounts[i].dot(weights) / total;
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+        spread(tree, 2 * node, from, middle, correlate(tree[2 * node + 1], weights), total);
+        spread(tree, 2 * node + 1, middle, to, correlate(tree[2 * node], weights), total);
+    }
+
+
+    // C(interior, bombs - m) for every m, scaled so the largest term of the sum over the product is 1.
+    private static double[] interiorWeights(double[] product, int bombs, int interior)
+    {
+        double[] logWeights = new double[product.length];
+        Arrays.fill(logWeights, Double.NEGATIVE_INFINITY);
+
+        // Going from m to m + 1 bombs in the components: C(n, k - 1) = C(n, k) * k / (n - k + 1).
+        int first = Math.max(0, bombs - interior);
+        double log = 0;
+        for (int m = first; m < product.length && m <= bombs; m++)
+        {
+            logWeights[m] = log;
+            int k = bombs - m;
+            if (k > 0) log += Math.log(k) - Math.log(interior - k + 1);
+        }
+
+        double peak = Double.NEGATIVE_INFINITY;
+        for (int m = 0; m < product.length; m++)
+        {
+            if (product[m] > 0) peak = Math.max(peak, logWeights[m] + Math.log(product[m]));
+        }
+
+        double[] weights = new double[product.length];
+        if (peak == Double.NEGATIVE_INFINITY) return weights;
+        for (int m = 0; m < product.length; m++)
+        {
+            if (logWeights[m] != Double.NEGATIVE_INFINITY) weights[m] = Math.exp(Math.min(logWeights[m] - peak, 700));
+        }
+        return weights;
+    }
+
+
+    private static double[] convolve(double[] a, double[] b)
+    {
+        double[] result = new double[a.length + b.length - 1];
+        for (int i = 0; i < a.length; i++)
+        {
+            if (a[i] == 0) continue;
+            for (int j = 0; j < b.length; j++) result[i + j] += a[i] * b[j];
+        }
+        return result;
+    }
+
+
+    // result[i] = sum of a[j] * weights[i + j]: the weights seen by one side of a product, with the other side summed out.
+    private static double[] correlate(double[] a, double[] weights)
+    {
+        double[] result = new double[weights.length - a.length + 1];
+        for (int i = 0; i < result.length; i++)
+        {
+            double sum = 0;
+            for (int j = 0; j < a.length; j++) sum += a[j] * weights[i + j];
+            result[i] = sum;
+        }
+        return result;
+    }
+
+
+    // The first interior cell that is not flagged (and not a bomb, if asked), or -1 if there is none.
+    // Cells that stop being interior never become interior again, so the search never goes back.
+    private int nextInteriorCell(boolean safeOnly)
+    {
+        int cells = size * size;
+        for (int cell = interiorCursor; cell < cells; cell++)
+        {
+            int row = cell / size;
+            int col = cell % size;
+            if (board.isRevealed(row, col) || hasRevealedNeighbor(row, col))
+            {
+                if (cell == interiorCursor) interiorCursor++;
+                continue;
+            }
+            if (board.isFlagged(row, col) || (safeOnly && board.isBomb(row, col))) continue;
+            return cell;
+        }
+        return -1;
+    }
+
+
+    private boolean hasRevealedNeighbor(int row, int col)
+    {
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, size - 1); r++)
+        {
+            for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, size - 1); c++)
+            {
+                if (board.isRevealed(r, c)) return true;
+            }
+        }
+        return false;
+    }
+
+
+    // Closed cells that are tied together by numbers, with their bomb layout counts.
+    private static final class Component
+    {
+        // False once a reveal touched the component.
+        boolean live = true;
+
+        // The closed cells and the numbers touching them.
+        int[] cells;
+        int[] numbers;
+
+        // counts[m]: share of the layouts that fit the numbers and have m bombs. Sums to 1.
+        // bombCounts[i]: by number of bombs, share of the layouts with a bomb on cells[i].
+        double[] counts;
+        Counts[] bombCounts;
+
+
+        // Counts the layouts one cell at a time. A partial layout is described by the bombs every open number
+        // (one touching both decided and undecided cells) still misses; partial layouts that agree on this are merged.
+        // A forward pass counts the ways to reach every state, a backward pass the ways to finish from it, and
+        // together they give the layouts with a bomb on each cell.
+        void count(Board board, int size)
+        {
+            int cellCount = cells.length;
+            int numberCount = numbers.length;
+
+            Map<Integer, Integer> index = new HashMap<>();
+            for (int i = 0; i < cellCount; i++) index.put(cells[i], i);
+
+            // For every cell, the numbers touching it; for every number, its first and last cell and how many it has.
+            int[][] touching = new int[cellCount][8];
+            int[] touchingCount = new int[cellCount];
+            int[] first = new int[numberCount];
+            int[] last = new int[numberCount];
+            int[] cellsOf = new int[numberCount];
+            int[] need = new int[numberCount];
+
+            for (int n = 0; n < numberCount; n++)
+            {
+                int row = numbers[n] / size;
+                int col = numbers[n] % size;
+                need[n] = board.getCount(row, col);
+                first[n] = Integer.MAX_VALUE;
+                last[n] = -1;
+
+                for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, size - 1); r++)
+                {
+                    for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, size - 1); c++)
+                    {
+                        if (board.isRevealed(r, c)) continue;
+
+                        int i = index.get(r * size + c);
+                        touching[i][touchingCount[i]++] = n;
+                        first[n] = Math.min(first[n], i);
+                        last[n] = Math.max(last[n], i);
+                        cellsOf[n]++;
+                    }
+                }
+            }
+
+            // Forward pass. Layer i holds the states before cell i is decided.
+            List<Layer> layers = new ArrayList<>(cellCount + 1);
+            Layer layer = new Layer(new int[0]);
+            layer.forward.set(layer.add(new byte[0]), Counts.one());
+            layers.add(layer);
+
+            int[] seen = new int[numberCount];
+            int[] missing = new int[numberCount];
+
+            for (int i = 0; i < cellCount; i++)
+            {
+                int[] touch = Arrays.copyOf(touching[i], touchingCount[i]);
+                for (int n : touch) seen[n]++;
+
+                // Numbers open after this cell: the open ones with cells left, and the ones this cell opens.
+                int[] open = layer.open;
+                int[] nextOpen = new int[open.length + touch.length];
+                int nextCount = 0;
+                for (int n : open) if (last[n] != i) nextOpen[nextCount++] = n;
+                for (int n : touch) if (first[n] == i && last[n] != i) nextOpen[nextCount++] = n;
+                nextOpen = Arrays.copyOf(nextOpen, nextCount);
+
+                Layer next = new Layer(nextOpen);
+                for (int s = 0; s < layer.size(); s++)
+                {
+                    byte[] state = layer.states.get(s);
+                    for (int bomb = 0; bomb <= 1; bomb++)
+                    {
+                        for (int p = 0; p < open.length; p++) missing[open[p]] = state[p];
+                        for (int n : touch) if (first[n] == i) missing[n] = need[n];
+
+                        boolean fits = true;
+                        for (int n : touch)
+                        {
+                            missing[n] -= bomb;
+                            // A number can't take more bombs than it has cells left.
+                            if (missing[n] < 0 || missing[n] > cellsOf[n] - seen[n]) fits = false;
+                        }
+                        if (!fits) continue;
+
+                        byte[] nextState = new byte[nextOpen.length];
+                        for (int p = 0; p < nextOpen.length; p++) nextState[p] = (byte) missing[nextOpen[p]];
+
+                        int target = next.add(nextState);
+                        next.forward.set(target, Counts.addShifted(next.forward.get(target), layer.forward.get(s), bomb));
+                        layer.addEdge(s, target, bomb);
+                    }
+                }
+
+                next.forwardScale = layer.forwardScale + Counts.normalize(next.forward);
+                layers.add(next);
+                layer = next;
+            }
+
+            if (layer.size() != 1) throw new IllegalStateException("No bomb layout fits the numbers on the board");
+
+            // Backward pass, from the single final state. States that lead nowhere have no counts.
+            layer.backward.set(0, Counts.one());
+            for (int i = cellCount - 1; i >= 0; i--)
+            {
+                Layer current = layers.get(i);
+                Layer after = layers.get(i + 1);
+                for (int e = 0; e < current.edgeCount; e++)
+                {
+                    Counts out = after.backward.get(current.edgeTo[e]);
+                    if (out == null) continue;
+
+                    int from = current.edgeFrom[e];
+                    current.backward.set(from, Counts.addShifted(current.backward.get(from), out, current.edgeBomb[e]));
+                }
+                current.backwardScale = after.backwardScale + Counts.normalize(current.backward);
+            }
+
+            // Layouts by number of bombs, as shares of all layouts.
+            Counts total = layer.forward.get(0);
+            double sum = 0;
+            for (double value : total.values) sum += value;
+            counts = new double[total.offset + total.values.length];
+            for (int j = 0; j < total.values.length; j++) counts[total.offset + j] = total.values[j] / sum;
+
+            // Layouts with a bomb on cell i: every edge that puts one there joins a way in with a way out.
+            bombCounts = new Counts[cellCount];
+            for (int i = 0; i < cellCount; i++)
+            {
+                Layer current = layers.get(i);
+                Layer after = layers.get(i + 1);
+                Counts bombsHere = null;
+
+                for (int e = 0; e < current.edgeCount; e++)
+                {
+                    Counts out = after.backward.get(current.edgeTo[e]);
+                    if (current.edgeBomb[e] == 0 || out == null) continue;
+
+                    bombsHere = Counts.addProduct(bombsHere, current.forward.get(current.edgeFrom[e]), out, 1);
+                }
+
+                // No layout has a bomb here.
+                if (bombsHere == null) bombsHere = new Counts(0, new double[] {0});
+                else bombsHere.scale(Math.exp(current.forwardScale + after.backwardScale - layer.forwardScale) / sum);
+                bombCounts[i] = bombsHere;
+            }
+        }
+    }
+
+
+    // The partial layout states before one cell is decided, with their counts and the moves to the next layer.
+    // Counts are kept scaled to at most 1 per layer; the scale is remembered as a logarithm.
+    private static final class Layer
+    {
+        final int[] open;
+        final List<byte[]> states = new ArrayList<>();
+        final Map<StateKey, Integer> lookup = new HashMap<>();
+        final List<Counts> forward = new ArrayList<>();
+        final List<Counts> backward = new ArrayList<>();
+        double forwardScale;
+        double backwardScale;
+
+        int[] edgeFrom = new int[4];
+        int[] edgeTo = new int[4];
+        int[] edgeBomb = new int[4];
+        int edgeCount;
+
+
+        Layer(int[] open)
+        {
+            this.open = open;
+        }
+
+
+        int size()
+        {
+            return states.size();
+        }
+
+
+        // Returns the index of the state, adding it if it is new.
+        int add(byte[] state)
+        {
+            StateKey key = new StateKey(state);
+            Integer existing = lookup.get(key);
+            if (existing != null) return existing;
+
+            lookup.put(key, states.size());
+            states.add(state);
+            forward.add(null);
+            backward.add(null);
+            return states.size() - 1;
+        }
+
+
+        void addEdge(int from, int to, int bomb)
+        {
+            if (edgeCount == edgeFrom.length)
+            {
+                edgeFrom = Arrays.copyOf(edgeFrom, edgeCount * 2);
+                edgeTo = Arrays.copyOf(edgeTo, edgeCount * 2);
+                edgeBomb = Arrays.copyOf(edgeBomb, edgeCount * 2);
+            }
+            edgeFrom[edgeCount] = from;
+            edgeTo[edgeCount] = to;
+            edgeBomb[edgeCount++] = bomb;
+        }
+    }
+
+
+    // Layout counts by number of bombs: values[j] counts the layouts with offset + j bombs.
+    // Only the range that is not zero is stored. After scaling, counts far below the largest one
+    // underflow to zero and drop off the ends, so the range stays narrow even on long components.
+    private static final class Counts
+    {
+        int offset;
+        double[] values;
+
+
+        Counts(int offset, double[] values)
+        {
+            this.offset = offset;
+            this.values = values;
+        }
+
+
+        // One layout with no bombs.
+        static Counts one()
+        {
+            return new Counts(0, new double[] {1});
+        }
+
+
+        // target + source moved up by "shift" bombs; target may be null.
+        static Counts addShifted(Counts target, Counts source, int shift)
+        {
+            if (source == null) return target;
+
+            target = cover(target, source.offset + shift, source.offset + shift + source.values.length);
+            int base = source.offset + shift - target.offset;
+            for (int j = 0; j < source.values.length; j++) target.values[base + j] += source.values[j];
+            return target;
+        }
+
+
+        // target + the product of a and b moved up by "shift" bombs; target may be null.
+        static Counts addProduct(Counts target, Counts a, Counts b, int shift)
+        {
+            if (a == null || b == null) return target;
+
+            int from = a.offset + b.offset + shift;
+            target = cover(target, from, from + a.values.length + b.values.length - 1);
+            int base = from - target.offset;
+            for (int i = 0; i < a.values.length; i++)
+            {
+                if (a.values[i] == 0) continue;
+                for (int j = 0; j < b.values.length; j++) target.values[base + i + j] += a.values[i] * b.values[j];
+            }
+            return target;
+        }
+
+
+        // Makes sure the counts have room for the bomb numbers from "from" (inclusive) to "to" (exclusive).
+        private static Counts cover(Counts counts, int from, int to)
+        {
+            if (counts == null) return new Counts(from, new double[to - from]);
+
+            int start = Math.min(counts.offset, from);
+            int end = Math.max(counts.offset + counts.values.length, to);
+            if (start == counts.offset && end == counts.offset + counts.values.length) return counts;
+
+            double[] values = new double[end - start];
+            System.arraycopy(counts.values, 0, values, counts.offset - start, counts.values.length);
+            counts.values = values;
+            counts.offset = start;
+            return counts;
+        }
+
+
+        void scale(double factor)
+        {
+            for (int j = 0; j < values.length; j++) values[j] *= factor;
+        }
+
+
+        // Bomb chance weighted by "weights" (indexed by number of bombs).
+        double dot(double[] weights)
+        {
+            double sum = 0;
+            for (int j = 0; j < values.length; j++) sum += values[j] * weights[offset + j];
+            return sum;
+        }
+
+
+        // Divides every count of a layer by the largest one, drops the zeros at the ends,
+        // and returns the logarithm of the divisor.
+        static double normalize(List<Counts> layer)
+        {
+            double max = 0;
+            for (Counts counts : layer)
+            {
+                if (counts == null) continue;
+                for (double value : counts.values) max = Math.max(max, value);
+            }
+            if (max == 0) return 0;
+
+            for (Counts counts : layer)
+            {
+                if (counts == null) continue;
+                counts.scale(1 / max);
+                counts.trim();
+            }
+            return Math.log(max);
+        }
+
+
+        private void trim()
+        {
+            int from = 0;
+            int to = values.length;
+            while (from < to - 1 && values[from] == 0) from++;
+            while (to - 1 > from && values[to - 1] == 0) to--;
+            if (from == 0 && to == values.length) return;
+
+            values = Arrays.copyOfRange(values, from, to);
+            offset += from;
+        }
+    }
+
+
+    // What the open numbers still miss, usable as a map key.
+    private static final class StateKey
+    {
+        private final byte[] missing;
+        private final int hash;
+
+
+        StateKey(byte[] missing)
+        {
+            this.missing = missing;
+            this.hash = Arrays.hashCode(missing);
+        }
+
+
+        @Override
+        public boolean equals(Object other)
+        {
+            return other instanceof StateKey && Arrays.equals(missing, ((StateKey) other).missing);
+        }
+
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+}
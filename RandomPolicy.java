@@ -0,0 +1,19 @@
+import java.util.SplittableRandom;
+
+// Reveals a random closed, unflagged cell every move. The baseline to compare smarter policies against.
+public class RandomPolicy implements MovePolicy
+{
+    @Override
+    public MoveResult nextMove(GameEngine engine, SplittableRandom random)
+    {
+        Board board = engine.getBoard();
+        int size = engine.getSize();
+
+        while (true)
+        {
+            int row = random.nextInt(size);
+            int col = random.nextInt(size);
+            if (!board.isRevealed(row, col) && !board.isFlagged(row, col)) return engine.reveal(row, col);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+// How hard a rated board plays compared to other boards of the same size and number of bombs.
+// A batch of boards is analyzed (see BoardAnalyzer). Each rating keeps the boards with the forced guesses it
+// allows, sorts them by 3BV and takes the board at its position in that order. Rated boards start with the
+// middle cell open.
+public enum Rating
+{
+    RELAXED("Relaxed", 0.25, 0, 0),
+    TYPICAL("Typical", 0.5, 0, Integer.MAX_VALUE),
+    TRICKY("Tricky", 0.75, 1, Integer.MAX_VALUE);
+
+    private final String title;
+    private final double position;
+    private final int minGuesses;
+    private final int maxGuesses;
+
+
+    Rating(String title, double position, int minGuesses, int maxGuesses)
+    {
+        this.title = title;
+        this.position = position;
+        this.minGuesses = minGuesses;
+        this.maxGuesses = maxGuesses;
+    }
+
+
+    public String getTitle()
+    {
+        return title;
+    }
+
+
+    // Where the board is taken from among the sorted boards: 0 is the fewest clicks, 1 the most.
+    public double getPosition()
+    {
+        return position;
+    }
+
+
+    // True if a board with this many forced guesses can get this rating.
+    public boolean allows(int forcedGuesses)
+    {
+        return forcedGuesses >= minGuesses && forcedGuesses <= maxGuesses;
+    }
+}
@@ -0,0 +1,121 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Scanner;
+
+// Plays back games recorded in a move journal ("java Display replay <journal> [game]").
+// Only what a replay needs is made here: an engine to play the moves on and a renderer to draw them. Unlike the
+// console game (Data) it opens no journal to record into and starts no board pool thread.
+public class ReplayViewer
+{
+    // Boards wider than this many columns are shown through the viewport, like in the console game.
+    private static final int VIEWPORT_THRESHOLD = 40;
+
+    private final Scanner input = new Scanner(System.in);
+    private final GameEngine engine = new GameEngine();
+    private final FrameRenderer renderer = new FrameRenderer(FrameRenderer.stdout(), '-', '.', '*', 'F');
+
+
+    // Lists the games recorded in a journal, with their settings, number of moves and length.
+    public void listGames(Path file)
+    {
+        long start = System.nanoTime();
+        long moves = 0;
+        try (JournalReader reader = new JournalReader(file))
+        {
+            while (reader.nextGame())
+            {
+                int count = 0;
+                while (reader.nextMove()) count++;
+                moves += count;
+
+                System.out.println("Game " + (reader.getGameIndex() + 1) + ": " + reader.getSize() + "x" + reader.getSize() + ", " +
+                        reader.getNumBombs() + " bombs, " + count + " moves in " + formatTime(reader.getTime()) + ", started " +
+                        Instant.ofEpochMilli(reader.getStartTime()).truncatedTo(ChronoUnit.SECONDS));
+            }
+            System.out.printf("%d moves read in %.1f ms.%n", moves, (System.nanoTime() - start) / 1e6);
+        }
+        catch (IOException e)
+        {
+            System.out.println(Data.RED + "Cannot read the journal: " + e.getMessage() + Data.RESET);
+        }
+    }
+
+
+    // Plays back a recorded game (numbered from 1). The player jumps to any move; the moves in between are
+    // played on the engine without drawing anything, and only the board at the chosen move is shown.
+    public void replay(Path file, int gameNumber)
+    {
+        try (JournalReader reader = new JournalReader(file))
+        {
+            GameReplay game = null;
+            while (game == null && reader.nextGame())
+            {
+                if (reader.getGameIndex() == gameNumber - 1) game = new GameReplay(reader);
+            }
+            if (game == null)
+            {
+                System.out.println(Data.RED + "The journal has no game " + gameNumber + "." + Data.RESET);
+                return;
+            }
+
+            int size = game.getSize();
+            renderer.setViewport(size > VIEWPORT_THRESHOLD);
+            renderer.moveViewport(0, 0, size);
+            game.seek(engine, 0);
+
+            while (true)
+            {
+                renderer.invalidate();
+                renderer.renderUserView(engine.getBoard());
+
+                int move = game.getPosition();
+                if (move == 0) System.out.println("Start of the game (" + game.getMoveCount() + " moves).");
+                else
+                {
+                    String[] kinds = {"", "Reveal", "Flag", "Boost"};
+                    System.out.println("Move " + move + " of " + game.getMoveCount() + " at " + formatTime(game.getTime(move - 1)) + ": " +
+                            kinds[game.getKind(move - 1)] + " (" + (game.getRow(move - 1) + 1) + ", " + (game.getCol(move - 1) + 1) + ")");
+                }
+                if (engine.isGameOver()) System.out.println(Data.RED + "The game was lost here." + Data.RESET);
+                else if (engine.isPlayerWin()) System.out.println(Data.GREEN + "The game was won here." + Data.RESET);
+
+                System.out.println("Enter a move number to jump to it, 'N' for the next move, 'P' for the previous one, 'Q' to quit.");
+                if (!input.hasNextLine()) return;
+                String inputStr = input.nextLine().trim();
+
+                int target;
+                if (inputStr.equalsIgnoreCase("Q")) return;
+                else if (inputStr.equalsIgnoreCase("N") || inputStr.isEmpty()) target = move + 1;
+                else if (inputStr.equalsIgnoreCase("P")) target = move - 1;
+                else
+                {
+                    try
+                    {
+                        target = Integer.parseInt(inputStr);
+                    }
+                    catch (NumberFormatException e)
+                    {
+                        System.out.println(Data.RED + "Invalid input! Try again." + Data.RESET);
+                        continue;
+                    }
+                }
+
+                game.seek(engine, Math.max(0, Math.min(target, game.getMoveCount())));
+            }
+        }
+        catch (IOException e)
+        {
+            System.out.println(Data.RED + "Cannot read the journal: " + e.getMessage() + Data.RESET);
+        }
+    }
+
+
+    // Minutes and seconds, e.g. "3:07".
+    private static String formatTime(long millis)
+    {
+        long seconds = millis / 1000;
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+}
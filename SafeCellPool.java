@@ -0,0 +1,91 @@
+// Indexed pool of the safe cells that are still closed and not flagged.
+// Reveal boosts pick their target from here in constant time instead of guessing coordinates.
+// cells: the pooled flat cell indices (row * size + col), in no particular order
+// slots: for every cell, its position in "cells", or -1 if it is not pooled
+// Removing a cell moves the last pooled cell into its slot, so every operation is O(1).
+// The two arrays take 8 bytes per cell, several times the board itself, so boards over MAX_CELLS are not pooled
+// (see GameEngine.boost).
+public class SafeCellPool
+{
+    // Largest board that is pooled: 8 MB of arrays.
+    public static final long MAX_CELLS = 1L << 20;
+
+    private int[] cells = new int[0];
+    private int[] slots = new int[0];
+    private int count = 0;
+
+
+    // Refills the pool from a board: every safe cell that is neither revealed nor flagged.
+    public void fill(Board board)
+    {
+        int size = board.getSize();
+        int allCells = size * size;
+
+        // Reuse the arrays when the board size did not change.
+        if (slots.length != allCells)
+        {
+            cells = new int[allCells];
+            slots = new int[allCells];
+        }
+
+        count = 0;
+        for (int i = 0; i < size; i++)
+        {
+            for (int j = 0; j < size; j++)
+            {
+                int cell = i * size + j;
+                if (!board.isBomb(i, j) && !board.isRevealed(i, j) && !board.isFlagged(i, j))
+                {
+                    slots[cell] = count;
+                    cells[count++] = cell;
+                }
+                else
+                {
+                    slots[cell] = -1;
+                }
+            }
+        }
+    }
+
+
+    public int size()
+    {
+        return count;
+    }
+
+
+    // Returns the pooled cell at the given position (0 to size() - 1).
+    public int get(int index)
+    {
+        return cells[index];
+    }
+
+
+    public boolean contains(int cell)
+    {
+        return slots[cell] >= 0;
+    }
+
+
+    // Puts a cell back into the pool, e.g. when the player removes a flag from a safe cell.
+    public void add(int cell)
+    {
+        if (slots[cell] >= 0) return;
+
+        slots[cell] = count;
+        cells[count++] = cell;
+    }
+
+
+    // Takes a cell out of the pool by moving the last pooled cell into its slot.
+    public void remove(int cell)
+    {
+        int slot = slots[cell];
+        if (slot < 0) return;
+
+        int last = cells[--count];
+        cells[slot] = last;
+        slots[last] = slot;
+        slots[cell] = -1;
+    }
+}
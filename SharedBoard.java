@@ -0,0 +1,443 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// A board many players (or solver threads) play together at the same time, without locks.
+// The bombs and counts come from a finished Board and are only read. What the players see lives in one packed array
+// of two bits per cell (closed, flagged or revealed), 32 cells per word with rows padded to whole words like Board,
+// and every change is a compare-and-set on the word of the cell. A cell goes from closed to revealed exactly once,
+// by whichever player's compare-and-set succeeds, and only that player goes on to fill around it, so flood fills
+// that meet never reveal a cell twice.
+// The closed safe cells are counted exactly: every cell is taken off the count by the compare-and-set that revealed it,
+// so the count is right even while fills are running, and the move whose cell takes it to zero is the one that wins.
+// Each thread plays through its own Player, which holds its fill stack.
+public class SharedBoard
+{
+    // Cell states, two bits each.
+    private static final long CLOSED = 0;
+    private static final long FLAGGED = 1;
+    private static final long REVEALED = 2;
+    private static final long STATE_MASK = 3;
+
+    private final Board board;
+    private final int size;
+    private final int numBombs;
+    private final int wordsPerRow;
+
+    private final AtomicLongArray states;
+    private final AtomicInteger closedSafeCells;
+    private final AtomicInteger flaggedCells = new AtomicInteger();
+    private volatile boolean lost = false;
+
+
+    // A shared game on a board whose bombs are placed. The board's counts are filled in here and it must not change
+    // afterwards; what the board itself shows as revealed or flagged is not used.
+    public SharedBoard(Board board)
+    {
+        this.board = board;
+        this.size = board.getSize();
+        this.wordsPerRow = (size + 31) >>> 5;
+
+        board.computeCounts();
+        numBombs = board.countBombs();
+        states = new AtomicLongArray(size * wordsPerRow);
+        closedSafeCells = new AtomicInteger(size * size - numBombs);
+    }
+
+
+    public int getSize()
+    {
+        return size;
+    }
+
+
+    public int getNumBombs()
+    {
+        return numBombs;
+    }
+
+
+    // Safe cells nobody has revealed yet.
+    public int getClosedSafeCells()
+    {
+        return closedSafeCells.get();
+    }
+
+
+    public int getFlaggedCells()
+    {
+        return flaggedCells.get();
+    }
+
+
+    public boolean isGameOver()
+    {
+        return lost;
+    }
+
+
+    public boolean isPlayerWin()
+    {
+        return closedSafeCells.get() == 0;
+    }
+
+
+    public boolean isFinished()
+    {
+        return lost || isPlayerWin();
+    }
+
+
+    public boolean isOnBoard(int row, int col)
+    {
+        return row >= 0 && row < size && col >= 0 && col < size;
+    }
+
+
+    public boolean isRevealed(int row, int col)
+    {
+        return state(row, col) == REVEALED;
+    }
+
+
+    public boolean isFlagged(int row, int col)
+    {
+        return state(row, col) == FLAGGED;
+    }
+
+
+    // The number of a revealed cell, or -1 for a cell nobody has opened: players only see what is revealed.
+    public int getCount(int row, int col)
+    {
+        return isRevealed(row, col) ? board.getCount(row, col) : -1;
+    }
+
+
+    // Index of the word that holds the cell, and the position of its two bits in it.
+    private int word(int row, int col)
+    {
+        return row * wordsPerRow + (col >>> 5);
+    }
+
+
+    private static int shift(int col)
+    {
+        return (col & 31) << 1;
+    }
+
+
+    private long state(int row, int col)
+    {
+        return (states.get(word(row, col)) >>> shift(col)) & STATE_MASK;
+    }
+
+
+    // Moves a cell from one state to another, if it is in that state. Returns false if it is not (anymore).
+    // Other cells of the same word may change in between; that only costs another try.
+    private boolean change(int row, int col, long from, long to)
+    {
+        int word = word(row, col);
+        int shift = shift(col);
+        while (true)
+        {
+            long bits = states.get(word);
+            if (((bits >>> shift) & STATE_MASK) != from) return false;
+
+            long changed = (bits & ~(STATE_MASK << shift)) | (to << shift);
+            if (states.compareAndSet(word, bits, changed)) return true;
+        }
+    }
+
+
+    // Reveals a cell for the fill: a closed or flagged cell becomes revealed, like in GameEngine, where a fill
+    // takes away the flags it runs over. Returns false if the cell was revealed already.
+    private boolean claim(int row, int col)
+    {
+        int word = word(row, col);
+        int shift = shift(col);
+        while (true)
+        {
+            long bits = states.get(word);
+            long state = (bits >>> shift) & STATE_MASK;
+            if (state == REVEALED) return false;
+
+            if (states.compareAndSet(word, bits, bits & ~(STATE_MASK << shift) | REVEALED << shift))
+            {
+                if (state == FLAGGED) flaggedCells.decrementAndGet();
+                return true;
+            }
+        }
+    }
+
+
+    // One thread's hand on the shared board. Not thread-safe itself: every thread needs its own.
+    public Player newPlayer()
+    {
+        return new Player();
+    }
+
+
+    public final class Player
+    {
+        // Flat cell indices (row * size + col) of revealed empty cells whose neighbors still have to be tried.
+        private int[] fillStack = new int[64];
+
+        // Set when one of this move's cells was the last closed safe cell.
+        private boolean tookLast;
+
+
+        private Player()
+        {
+        }
+
+
+        // Opens a cell. An empty cell opens the whole connected empty area around it, shared with anyone else
+        // filling the same area. The revealed count is the number of cells this player revealed.
+        public MoveResult reveal(int row, int col)
+        {
+            if (!isOnBoard(row, col)) return new MoveResult(MoveResult.Outcome.OUT_OF_RANGE, row, col);
+            if (isFinished()) return new MoveResult(MoveResult.Outcome.GAME_OVER, row, col);
+
+            if (!change(row, col, CLOSED, REVEALED))
+            {
+                MoveResult.Outcome outcome = isFlagged(row, col) ? MoveResult.Outcome.FLAGGED_CELL : MoveResult.Outcome.ALREADY_REVEALED;
+                return new MoveResult(outcome, row, col);
+            }
+
+            if (board.isBomb(row, col))
+            {
+                lost = true;
+                return new MoveResult(MoveResult.Outcome.LOST, row, col);
+            }
+
+            tookLast = false;
+            take();
+            int revealed = 1 + (board.getCount(row, col) == 0 ? fill(row * size + col) : 0);
+
+            // The one move that took the last safe cell wins, however the cells were shared out.
+            return new MoveResult(tookLast ? MoveResult.Outcome.WON : MoveResult.Outcome.REVEALED, row, col, revealed, null);
+        }
+
+
+        // Places a flag on a closed cell, but never removes one, so players who find the same bomb at once do not
+        // undo each other's flag.
+        public MoveResult mark(int row, int col)
+        {
+            if (!isOnBoard(row, col)) return new MoveResult(MoveResult.Outcome.OUT_OF_RANGE, row, col);
+            if (isFinished()) return new MoveResult(MoveResult.Outcome.GAME_OVER, row, col);
+
+            if (change(row, col, CLOSED, FLAGGED))
+            {
+                flaggedCells.incrementAndGet();
+                return new MoveResult(MoveResult.Outcome.FLAGGED, row, col);
+            }
+            return new MoveResult(isRevealed(row, col) ? MoveResult.Outcome.ALREADY_REVEALED : MoveResult.Outcome.FLAGGED_CELL, row, col);
+        }
+
+
+        // Places a flag on a closed cell, or removes it if the cell is flagged.
+        public MoveResult flag(int row, int col)
+        {
+            if (!isOnBoard(row, col)) return new MoveResult(MoveResult.Outcome.OUT_OF_RANGE, row, col);
+            if (isFinished()) return new MoveResult(MoveResult.Outcome.GAME_OVER, row, col);
+
+            // The cell can change under us; try whichever way it is now until one of them sticks.
+            while (true)
+            {
+                if (change(row, col, CLOSED, FLAGGED))
+                {
+                    flaggedCells.incrementAndGet();
+                    return new MoveResult(MoveResult.Outcome.FLAGGED, row, col);
+                }
+                if (change(row, col, FLAGGED, CLOSED))
+                {
+                    flaggedCells.decrementAndGet();
+                    return new MoveResult(MoveResult.Outcome.UNFLAGGED, row, col);
+                }
+                if (isRevealed(row, col)) return new MoveResult(MoveResult.Outcome.ALREADY_REVEALED, row, col);
+            }
+        }
+
+
+        // Reveals the neighbors of a revealed empty cell, and theirs for every empty one among them.
+        // Only cells this player claims are expanded; a cell claimed by someone else is their fill's to expand.
+        // Returns the number of cells this player revealed.
+        private int fill(int start)
+        {
+            int revealed = 0;
+            int top = 0;
+            fillStack[top++] = start;
+
+            while (top > 0)
+            {
+                int cell = fillStack[--top];
+                int row = cell / size;
+                int col = cell % size;
+
+                for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, size - 1); r++)
+                {
+                    for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, size - 1); c++)
+                    {
+                        // A plain read skips most cells that are open already; the claim decides the rest.
+                        if (state(r, c) == REVEALED || !claim(r, c)) continue;
+
+                        take();
+                        revealed++;
+                        if (board.getCount(r, c) == 0)
+                        {
+                            if (top == fillStack.length) fillStack = Arrays.copyOf(fillStack, top * 2);
+                            fillStack[top++] = r * size + c;
+                        }
+                    }
+                }
+            }
+            return revealed;
+        }
+
+
+        // Takes a safe cell this player just revealed off the count.
+        private void take()
+        {
+            if (closedSafeCells.decrementAndGet() == 0) tookLast = true;
+        }
+    }
+
+
+    // Usage: coop-stress [size] [bomb density] [threads] [seed]
+    // Stress test of the board itself, not a way to play (see CoopSolver for that): the threads are told where the
+    // bombs are and just flag or reveal every cell. It clears one big board with 1, 2, 4, ... up to the given number of threads playing together,
+    // checks that every safe cell was revealed exactly once and that exactly one move won, and prints the speed.
+    // Threads take rows in a shuffled order, so neighboring rows, and the openings across them, are often played by
+    // different threads at once.
+    public static void main(String[] args) throws InterruptedException
+    {
+        int size;
+        int maxThreads;
+        long seed;
+        int numBombs;
+        GameEngine engine;
+        try
+        {
+            size = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+            double density = args.length > 1 ? Double.parseDouble(args[1]) : 0.15;
+            maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+            seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+
+            if (size < 1 || size > 16384) throw new IllegalArgumentException("The board size must be between 1 and 16384: " + size);
+            if (!(density >= 0 && density < 1)) throw new IllegalArgumentException("The bomb density must be at least 0 and below 1: " + density);
+            if (maxThreads < 1) throw new IllegalArgumentException("The number of threads must be at least 1: " + maxThreads);
+
+            numBombs = (int) Math.round((double) size * size * density);
+            engine = new GameEngine(seed);
+            engine.newGame(size, numBombs, 0);
+        }
+        catch (IllegalArgumentException e)
+        {
+            // Also catches NumberFormatException, for arguments that are not numbers.
+            System.err.println(e.getMessage());
+            System.err.println("Usage: coop-stress [size] [bomb density] [threads] [seed]");
+            return;
+        }
+        Board board = engine.getBoard();
+
+        int[] rows = new int[size];
+        for (int i = 0; i < size; i++) rows[i] = i;
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = size - 1; i > 0; i--)
+        {
+            int j = random.nextInt(i + 1);
+            int row = rows[i];
+            rows[i] = rows[j];
+            rows[j] = row;
+        }
+
+        System.out.println("Clearing a " + size + "x" + size + " board with " + numBombs + " bombs together (seed " + seed + ").");
+
+        // One untimed round first, so the first timed one is not the one that waits for the JIT.
+        clear(board, rows, maxThreads, -1);
+
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads = threads < maxThreads ? Math.min(threads * 2, maxThreads) : threads + 1)
+        {
+            double seconds = clear(board, rows, threads, baseline);
+            if (threads == 1) baseline = seconds;
+        }
+    }
+
+
+    // Clears the board on a fresh shared game with the given number of threads, and prints how it went compared to
+    // the baseline time (0 for none yet, -1 to print nothing). Returns the time it took, in seconds.
+    private static double clear(Board board, int[] rows, int threads, double baseline) throws InterruptedException
+    {
+        int size = board.getSize();
+        SharedBoard shared = new SharedBoard(board);
+        AtomicInteger nextRow = new AtomicInteger();
+        AtomicInteger wins = new AtomicInteger();
+        long[] revealed = new long[threads];
+        long[] moves = new long[threads];
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++)
+        {
+            int index = t;
+            workers[t] = new Thread(() ->
+            {
+                Player player = shared.newPlayer();
+                for (int i = nextRow.getAndIncrement(); i < size; i = nextRow.getAndIncrement())
+                {
+                    int row = rows[i];
+                    for (int col = 0; col < size; col++)
+                    {
+                        if (shared.isRevealed(row, col) || shared.isFlagged(row, col)) continue;
+
+                        MoveResult result = board.isBomb(row, col) ? player.flag(row, col) : player.reveal(row, col);
+                        moves[index]++;
+                        revealed[index] += result.getRevealedCount();
+                        if (result.getOutcome() == MoveResult.Outcome.WON) wins.incrementAndGet();
+                    }
+                }
+            }, "coop-" + t);
+        }
+
+        long start = System.nanoTime();
+        for (Thread worker : workers) worker.start();
+        for (Thread worker : workers) worker.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long totalRevealed = Arrays.stream(revealed).sum();
+        long totalMoves = Arrays.stream(moves).sum();
+        String check = verify(shared, board, totalRevealed, wins.get());
+
+        if (baseline < 0) return seconds;
+
+        System.out.printf("%d threads: %.3f s, %.1f M cells/sec, %.1f M moves/sec, speedup %.2f, %s%n", threads, seconds,
+                totalRevealed / seconds / 1e6, totalMoves / seconds / 1e6, baseline > 0 ? baseline / seconds : 1, check);
+        return seconds;
+    }
+
+
+    // Every safe cell revealed once, one win, flags only on bombs and as many as counted: "ok", or what went wrong.
+    // Bombs reached after the winning move stay unflagged, since a finished game takes no more moves.
+    private static String verify(SharedBoard shared, Board board, long revealed, int wins)
+    {
+        int size = board.getSize();
+        long safeCells = (long) size * size - shared.getNumBombs();
+        if (revealed != safeCells) return "FAILED: " + revealed + " cells revealed for " + safeCells + " safe cells";
+        if (wins != 1) return "FAILED: " + wins + " winning moves";
+        if (shared.getClosedSafeCells() != 0) return "FAILED: " + shared.getClosedSafeCells() + " safe cells left";
+
+        int flags = 0;
+        for (int row = 0; row < size; row++)
+        {
+            for (int col = 0; col < size; col++)
+            {
+                boolean bomb = board.isBomb(row, col);
+                if (bomb ? shared.isRevealed(row, col) : !shared.isRevealed(row, col)) return "FAILED at (" + (row + 1) + ',' + (col + 1) + ')';
+                if (shared.isFlagged(row, col)) flags++;
+            }
+        }
+        if (flags != shared.getFlaggedCells()) return "FAILED: " + flags + " flags, " + shared.getFlaggedCells() + " counted";
+        return "ok";
+    }
+}
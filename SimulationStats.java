@@ -0,0 +1,101 @@
+// Totals of a batch of simulated games. Every simulator task fills its own instance; they are merged at the end.
+public class SimulationStats
+{
+    // Flood fill sizes are counted in power-of-two buckets: 1, 2-3, 4-7, 8-15, ...
+    public static final int FILL_BUCKETS = 32;
+
+    private long games = 0;
+    private long wins = 0;
+    private long moves = 0;
+    private double revealedFraction = 0;
+    private final long[] fillSizes = new long[FILL_BUCKETS];
+
+
+    // Adds one finished game. revealedFraction is the share of safe cells revealed when it ended.
+    public void addGame(boolean won, double revealedFraction)
+    {
+        games++;
+        if (won) wins++;
+        this.revealedFraction += revealedFraction;
+    }
+
+
+    // Adds one move; revealed is the number of cells it opened.
+    public void addMove(int revealed)
+    {
+        moves++;
+        if (revealed > 0) fillSizes[31 - Integer.numberOfLeadingZeros(revealed)]++;
+    }
+
+
+    public void merge(SimulationStats other)
+    {
+        games += other.games;
+        wins += other.wins;
+        moves += other.moves;
+        revealedFraction += other.revealedFraction;
+        for (int i = 0; i < FILL_BUCKETS; i++)
+        {
+            fillSizes[i] += other.fillSizes[i];
+        }
+    }
+
+
+    public long getGames()
+    {
+        return games;
+    }
+
+
+    public long getWins()
+    {
+        return wins;
+    }
+
+
+    public long getMoves()
+    {
+        return moves;
+    }
+
+
+    public double getWinRate()
+    {
+        return games == 0 ? 0 : (double) wins / games;
+    }
+
+
+    public double getAverageRevealedFraction()
+    {
+        return games == 0 ? 0 : revealedFraction / games;
+    }
+
+
+    // Number of reveals that opened between 2^bucket and 2^(bucket + 1) - 1 cells.
+    public long getFillSizeCount(int bucket)
+    {
+        return fillSizes[bucket];
+    }
+
+
+    // Multi-line report, e.g. for the console.
+    public String report()
+    {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("  games %d, wins %d (%.2f%%), moves %d%n", games, wins, getWinRate() * 100, moves));
+        text.append(String.format("  average revealed fraction %.4f%n", getAverageRevealedFraction()));
+        text.append("  cells opened per reveal:");
+
+        long reveals = 0;
+        for (long count : fillSizes) reveals += count;
+        for (int i = 0; i < FILL_BUCKETS; i++)
+        {
+            if (fillSizes[i] == 0) continue;
+            int from = 1 << i;
+            int to = (1 << (i + 1)) - 1;
+            String range = from == to ? String.valueOf(from) : from + "-" + to;
+            text.append(String.format("%n    %-12s %6.2f%%", range, 100.0 * fillSizes[i] / reveals));
+        }
+        return text.toString();
+    }
+}
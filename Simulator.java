@@ -0,0 +1,146 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+// Plays many games without the console, spread over all cores, and collects statistics.
+// Games are handed out in batches to a work-stealing pool. Every batch has its own engine, policy and
+// random numbers, seeded from the run seed and the batch number, so the same seed always gives the same totals.
+public class Simulator
+{
+    // Games per task. Big enough to keep scheduling cheap, small enough to balance the cores.
+    private static final int BATCH_GAMES = 1000;
+
+    private final Supplier<MovePolicy> policies;
+    private final int threads;
+    private final long seed;
+
+
+    public Simulator(Supplier<MovePolicy> policies, int threads, long seed)
+    {
+        this.policies = policies;
+        this.threads = threads;
+        this.seed = seed;
+    }
+
+
+    // Plays the given number of games on boards of the given size and number of bombs.
+    public SimulationStats run(int size, int numBombs, long games)
+    {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try
+        {
+            List<ForkJoinTask<SimulationStats>> batches = new ArrayList<>();
+            for (long first = 0; first < games; first += BATCH_GAMES)
+            {
+                long batch = first / BATCH_GAMES;
+                int count = (int) Math.min(BATCH_GAMES, games - first);
+                batches.add(pool.submit(() -> playBatch(size, numBombs, count, seed + batch)));
+            }
+
+            SimulationStats total = new SimulationStats();
+            for (ForkJoinTask<SimulationStats> batch : batches)
+            {
+                total.merge(batch.join());
+            }
+            return total;
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+
+    private SimulationStats playBatch(int size, int numBombs, int games, long batchSeed)
+    {
+        GameEngine engine = new GameEngine(batchSeed);
+        MovePolicy policy = policies.get();
+        SplittableRandom random = new SplittableRandom(~batchSeed);
+        SimulationStats stats = new SimulationStats();
+
+        int safeCells = size * size - numBombs;
+        // A policy that stops making progress (e.g. only toggles flags) gives up after this many moves.
+        long maxMoves = 4L * size * size + 16;
+
+        for (int game = 0; game < games; game++)
+        {
+            engine.newGame(size, numBombs, 0);
+            policy.newGame(engine);
+
+            for (long moves = 0; !engine.isFinished() && moves < maxMoves; moves++)
+            {
+                stats.addMove(policy.nextMove(engine, random).getRevealedCount());
+            }
+
+            double revealed = safeCells == 0 ? 1 : (double) engine.getRevealedSafeCells() / safeCells;
+            stats.addGame(engine.isPlayerWin(), revealed);
+        }
+        return stats;
+    }
+
+
+    // The move policies that can be chosen by name on the command line.
+    public static Supplier<MovePolicy> policyByName(String name)
+    {
+        switch (name.toLowerCase())
+        {
+            case "random":
+                return RandomPolicy::new;
+
+            case "solver":
+                return Solver::new;
+
+            default:
+                throw new IllegalArgumentException("Unknown move policy: " + name);
+        }
+    }
+
+
+    // Usage: simulate [games per level] [policy] [threads] [seed]
+    // Plays every preset level and prints throughput and statistics for each.
+    public static void main(String[] args)
+    {
+        long games;
+        String policyName;
+        Supplier<MovePolicy> policy;
+        int threads;
+        long seed;
+        try
+        {
+            games = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+            policyName = args.length > 1 ? args[1] : "random";
+            policy = policyByName(policyName);
+            threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+            seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+
+            if (games < 1) throw new IllegalArgumentException("The number of games must be at least 1: " + games);
+            if (threads < 1) throw new IllegalArgumentException("The number of threads must be at least 1: " + threads);
+        }
+        catch (IllegalArgumentException e)
+        {
+            // Also catches NumberFormatException, for arguments that are not numbers.
+            System.err.println(e.getMessage());
+            System.err.println("Usage: simulate [games per level] [random|solver] [threads] [seed]");
+            return;
+        }
+
+        Simulator simulator = new Simulator(policy, threads, seed);
+        System.out.println("Simulating " + games + " games per level with the '" + policyName + "' policy on " +
+                threads + " threads (seed " + seed + ").");
+
+        for (Level level : Level.values())
+        {
+            long start = System.nanoTime();
+            SimulationStats stats = simulator.run(level.getSize(), level.getNumBombs(), games);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.println();
+            System.out.printf("%s (%dx%d, %d bombs): %.2f s, %.0f games/sec%n", level.getTitle(), level.getSize(), level.getSize(),
+                    level.getNumBombs(), seconds, stats.getGames() / seconds);
+            System.out.println(stats.report());
+        }
+    }
+}
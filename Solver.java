@@ -0,0 +1,670 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Plays a board the way a careful player would: it only guesses when no move is logically forced.
+// It looks at the numbered cells that touch closed cells (the frontier) and uses two rules:
+//   - single cell: a number that already touches all its bombs makes its other closed neighbors safe,
+//     and a number with exactly as many closed neighbors as bombs left makes them all bombs.
+//   - pairs of nearby numbers: the closed cells both numbers touch can hold only so many bombs, which can prove
+//     the cells only one of them touches safe or bombs. Subsets and supersets are the simplest cases of this.
+// The solver follows the engine as a CellListener, so every revealed cell updates the frontier right away and
+// only the numbers around changed cells are looked at again. Nothing rescans the whole board during a game.
+// Guesses and ties do not use randomness, so the same board is always played the same way.
+public class Solver implements MovePolicy, GameEngine.CellListener
+{
+    private GameEngine engine;
+    private Board board;
+    private int size;
+    private long boardSeed;
+
+    // Number of revealed cells the solver has been told about. If the engine has revealed a different number,
+    // the solver missed some reveals (e.g. it was not listening yet) and starts over from the board.
+    private int seenRevealed;
+
+    // Closed cells proven to be bombs, and proven safe cells that are not revealed yet. One bit per cell, row after row.
+    private long[] bombs = new long[0];
+    private long[] safe = new long[0];
+    private int knownBombs;
+
+    // Closed cells that are neither proven bombs nor proven safe.
+    private int unresolved;
+
+    // Numbered cells to check with the single cell rule and with the pair rule, because something around them changed.
+    private final CellQueue singleQueue = new CellQueue();
+    private final CellQueue pairQueue = new CellQueue();
+
+    // Proven safe cells waiting to be revealed, and proven bombs waiting to be flagged.
+    private final CellQueue safeQueue = new CellQueue();
+    private final CellQueue bombQueue = new CellQueue();
+
+    // Numbered revealed cells that still touch unresolved cells.
+    // A cell leaves by clearing its bit; the list itself is compacted once it holds more stale entries than live ones.
+    private long[] frontierBits = new long[0];
+    private int[] frontier = new int[64];
+    private int frontierLength;
+    private int frontierCount;
+
+    // Cells before this one are known not to be interior guesses (closed, unresolved cells with no revealed neighbor).
+    private int interiorCursor;
+
+    // When true, proven bombs are flagged on the board, one move each. Useful when a person watches the solver.
+    private boolean flagBombs = false;
+
+    private long forcedMoves;
+    private long guesses;
+    private boolean lastMoveGuess;
+
+    // Unresolved neighbors of the numbers the rules are looking at, and how many bombs each number still misses.
+    private final int[] cellsA = new int[8];
+    private final int[] cellsB = new int[8];
+    private int bombsLeft;
+
+
+    public void setFlagBombs(boolean flagBombs)
+    {
+        this.flagBombs = flagBombs;
+    }
+
+
+    // Moves that were logically forced, and guesses, over every game this solver played.
+    public long getForcedMoves()
+    {
+        return forcedMoves;
+    }
+
+
+    public long getGuesses()
+    {
+        return guesses;
+    }
+
+
+    // True if the last move of "step" was a guess rather than a forced move.
+    public boolean isLastMoveGuess()
+    {
+        return lastMoveGuess;
+    }
+
+
+    // Number of numbered cells on the frontier.
+    public int getFrontierSize()
+    {
+        return frontierCount;
+    }
+
+
+    // Starts following an engine. Reveals made by anyone (the solver, the player, a boost) keep the solver up to date.
+    public void attach(GameEngine engine)
+    {
+        if (this.engine == engine) return;
+
+        if (this.engine != null) this.engine.removeCellListener(this);
+        engine.addCellListener(this);
+        this.engine = engine;
+        board = null;
+    }
+
+
+    @Override
+    public void newGame(GameEngine engine)
+    {
+        attach(engine);
+        reset();
+    }
+
+
+    @Override
+    public MoveResult nextMove(GameEngine engine, SplittableRandom random)
+    {
+        attach(engine);
+        return step();
+    }
+
+
+    // Plays until the game is won or lost, and returns the last move.
+    public MoveResult solve()
+    {
+        MoveResult result = new MoveResult(MoveResult.Outcome.GAME_OVER, -1, -1);
+        while (!engine.isFinished()) result = step();
+        return result;
+    }
+
+
+    // Makes one move: reveals a proven safe cell if there is one, flags a proven bomb if flagging is on,
+    // and only guesses when neither rule proves anything.
+    public MoveResult step()
+    {
+        sync();
+        if (engine.isFinished()) return new MoveResult(MoveResult.Outcome.GAME_OVER, -1, -1);
+
+        MoveResult forced = forcedStep();
+        return forced != null ? forced : guess();
+    }
+
+
+    // Plays forced moves only. Returns true if that wins the game, false as soon as a guess would be needed.
+    // A board this returns true for can be finished from its current state without any luck.
+    public boolean solveWithoutGuessing()
+    {
+        sync();
+        while (!engine.isFinished())
+        {
+            if (forcedStep() == null) return false;
+        }
+        return engine.isPlayerWin();
+    }
+
+
+    // Makes one forced move like "step", but returns null instead of guessing, e.g. to let the caller
+    // decide what to do when the rules run out.
+    public MoveResult stepWithoutGuessing()
+    {
+        sync();
+        if (engine.isFinished()) return new MoveResult(MoveResult.Outcome.GAME_OVER, -1, -1);
+
+        return forcedStep();
+    }
+
+
+    // Makes one forced move, or returns null if none of the rules proves anything.
+    private MoveResult forcedStep()
+    {
+        while (true)
+        {
+            while (!singleQueue.isEmpty()) applySingleRule(singleQueue.pop());
+
+            while (!safeQueue.isEmpty())
+            {
+                int cell = safeQueue.pop();
+                int row = cell / size;
+                int col = cell % size;
+                if (board.isRevealed(row, col)) continue;
+
+                // The player flagged a safe cell: remove the flag now, reveal it on the next step.
+                if (board.isFlagged(row, col))
+                {
+                    safeQueue.push(cell);
+                    return forcedMove(engine.flag(row, col));
+                }
+                return forcedMove(engine.reveal(row, col));
+            }
+
+            if (flagBombs)
+            {
+                while (!bombQueue.isEmpty())
+                {
+                    int cell = bombQueue.pop();
+                    if (!board.isFlagged(cell / size, cell % size)) return forcedMove(engine.flag(cell / size, cell % size));
+                }
+            }
+
+            // The single cell rule is out of moves, try pairs of numbers.
+            if (!pairQueue.isEmpty())
+            {
+                applyPairRules();
+                continue;
+            }
+
+            // Every bomb is found, so whatever is still closed is safe.
+            if (knownBombs == engine.getNumBombs() && unresolved > 0)
+            {
+                markRestSafe();
+                continue;
+            }
+
+            return null;
+        }
+    }
+
+
+    @Override
+    public void cellRevealed(int row, int col)
+    {
+        // Reveals on a board the solver is not following yet are picked up by "sync".
+        if (board == null || board != engine.getBoard() || boardSeed != engine.getBoardSeed()) return;
+
+        seenRevealed++;
+
+        int cell = row * size + col;
+        if (isSet(safe, cell)) clear(safe, cell);
+        else unresolved--;
+
+        if (board.getCount(row, col) > 0) queue(cell);
+        neighborChanged(row, col);
+    }
+
+
+    @Override
+    public void cellFlagChanged(int row, int col)
+    {
+        // Flags are the player's opinion; the solver only trusts what it proved itself.
+    }
+
+
+    private MoveResult forcedMove(MoveResult result)
+    {
+        forcedMoves++;
+        lastMoveGuess = false;
+        return result;
+    }
+
+
+    // Starts over if the engine moved on to another board or revealed cells the solver was not told about.
+    private void sync()
+    {
+        if (board != engine.getBoard() || size != engine.getSize() || boardSeed != engine.getBoardSeed() ||
+                seenRevealed != engine.getRevealedSafeCells())
+        {
+            reset();
+        }
+    }
+
+
+    // Forgets everything and reads the revealed cells of the current board.
+    // On a fresh board nothing is revealed yet, so this only clears the bit sets.
+    private void reset()
+    {
+        board = engine.getBoard();
+        size = engine.getSize();
+        boardSeed = engine.getBoardSeed();
+
+        int cells = size * size;
+        int words = (cells + 63) >>> 6;
+        if (bombs.length != words)
+        {
+            bombs = new long[words];
+            safe = new long[words];
+            frontierBits = new long[words];
+        }
+        else
+        {
+            Arrays.fill(bombs, 0);
+            Arrays.fill(safe, 0);
+            Arrays.fill(frontierBits, 0);
+        }
+
+        singleQueue.reset(cells);
+        pairQueue.reset(cells);
+        safeQueue.reset(cells);
+        bombQueue.reset(cells);
+        frontierLength = 0;
+        frontierCount = 0;
+        knownBombs = 0;
+        interiorCursor = 0;
+
+        seenRevealed = engine.getRevealedSafeCells();
+        unresolved = cells - seenRevealed;
+
+        if (seenRevealed > 0)
+        {
+            for (int i = 0; i < size; i++)
+            {
+                for (int j = 0; j < size; j++)
+                {
+                    if (board.isRevealed(i, j) && board.getCount(i, j) > 0) queue(i * size + j);
+                }
+            }
+        }
+    }
+
+
+    // Puts a numbered cell up for another look by both rules.
+    private void queue(int cell)
+    {
+        singleQueue.push(cell);
+        pairQueue.push(cell);
+    }
+
+
+    // The cell was revealed or resolved, so the numbers around it have to be looked at again.
+    private void neighborChanged(int row, int col)
+    {
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, size - 1); r++)
+        {
+            for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, size - 1); c++)
+            {
+                if (board.isRevealed(r, c) && board.getCount(r, c) > 0) queue(r * size + c);
+            }
+        }
+    }
+
+
+    // Lists the unresolved neighbors of a numbered cell and sets "bombsLeft" to the bombs among them.
+    private int collect(int cell, int[] cells)
+    {
+        int row = cell / size;
+        int col = cell % size;
+        int count = 0;
+        bombsLeft = board.getCount(row, col);
+
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, size - 1); r++)
+        {
+            for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, size - 1); c++)
+            {
+                if (board.isRevealed(r, c)) continue;
+
+                int neighbor = r * size + c;
+                if (isSet(bombs, neighbor)) bombsLeft--;
+                else if (!isSet(safe, neighbor)) cells[count++] = neighbor;
+            }
+        }
+        return count;
+    }
+
+
+    private void applySingleRule(int cell)
+    {
+        int count = collect(cell, cellsA);
+        if (count == 0)
+        {
+            leaveFrontier(cell);
+            return;
+        }
+        enterFrontier(cell);
+
+        if (bombsLeft == 0)
+        {
+            for (int i = 0; i < count; i++) markSafe(cellsA[i]);
+        }
+        else if (bombsLeft == count)
+        {
+            for (int i = 0; i < count; i++) markBomb(cellsA[i]);
+        }
+    }
+
+
+    // Compares queued numbers with every number up to two cells away, until one pair proves something.
+    // For numbers A and B: if A misses as many more bombs than B as A has cells that B does not touch,
+    // those cells are all bombs and the cells only B touches are all safe (and the same the other way around).
+    private void applyPairRules()
+    {
+        while (!pairQueue.isEmpty())
+        {
+            int a = pairQueue.pop();
+            int countA = collect(a, cellsA);
+            int leftA = bombsLeft;
+            if (countA == 0) continue;
+
+            int rowA = a / size;
+            int colA = a % size;
+            for (int r = Math.max(rowA - 2, 0); r <= Math.min(rowA + 2, size - 1); r++)
+            {
+                for (int c = Math.max(colA - 2, 0); c <= Math.min(colA + 2, size - 1); c++)
+                {
+                    int b = r * size + c;
+                    if (b == a || !board.isRevealed(r, c) || board.getCount(r, c) == 0) continue;
+
+                    int countB = collect(b, cellsB);
+                    int leftB = bombsLeft;
+                    if (countB == 0) continue;
+
+                    int shared = 0;
+                    for (int i = 0; i < countA; i++)
+                    {
+                        if (contains(cellsB, countB, cellsA[i])) shared++;
+                    }
+                    if (shared == 0) continue;
+
+                    int onlyA = countA - shared;
+                    int onlyB = countB - shared;
+                    if (onlyA + onlyB == 0) continue;
+
+                    if (leftA - leftB == onlyA)
+                    {
+                        markDifference(cellsA, countA, cellsB, countB, true);
+                        markDifference(cellsB, countB, cellsA, countA, false);
+                        return;
+                    }
+                    if (leftB - leftA == onlyB)
+                    {
+                        markDifference(cellsB, countB, cellsA, countA, true);
+                        markDifference(cellsA, countA, cellsB, countB, false);
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+
+    // Marks the cells of the first list that are not in the second one as bombs or as safe.
+    private void markDifference(int[] cells, int count, int[] other, int otherCount, boolean bomb)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            if (contains(other, otherCount, cells[i])) continue;
+
+            if (bomb) markBomb(cells[i]);
+            else markSafe(cells[i]);
+        }
+    }
+
+
+    private static boolean contains(int[] cells, int count, int cell)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            if (cells[i] == cell) return true;
+        }
+        return false;
+    }
+
+
+    private void markSafe(int cell)
+    {
+        if (isSet(safe, cell) || isSet(bombs, cell)) return;
+
+        set(safe, cell);
+        unresolved--;
+        safeQueue.push(cell);
+        neighborChanged(cell / size, cell % size);
+    }
+
+
+    private void markBomb(int cell)
+    {
+        if (isSet(safe, cell) || isSet(bombs, cell)) return;
+
+        set(bombs, cell);
+        knownBombs++;
+        unresolved--;
+        if (flagBombs) bombQueue.push(cell);
+        neighborChanged(cell / size, cell % size);
+    }
+
+
+    // All bombs are proven, so every unresolved cell is safe. Happens at most once per board.
+    private void markRestSafe()
+    {
+        for (int i = 0; i < size; i++)
+        {
+            for (int j = 0; j < size; j++)
+            {
+                int cell = i * size + j;
+                if (!board.isRevealed(i, j) && !isSet(bombs, cell)) markSafe(cell);
+            }
+        }
+    }
+
+
+    private void enterFrontier(int cell)
+    {
+        if (isSet(frontierBits, cell)) return;
+
+        set(frontierBits, cell);
+        frontierCount++;
+        if (frontierLength == frontier.length) compactFrontier();
+        frontier[frontierLength++] = cell;
+    }
+
+
+    private void leaveFrontier(int cell)
+    {
+        if (!isSet(frontierBits, cell)) return;
+
+        clear(frontierBits, cell);
+        frontierCount--;
+    }
+
+
+    // Drops the stale entries of the frontier list, and makes it bigger if most entries are live.
+    private void compactFrontier()
+    {
+        int live = 0;
+        for (int i = 0; i < frontierLength; i++)
+        {
+            // A number never comes back once it left: its unresolved neighbors only ever get fewer.
+            if (isSet(frontierBits, frontier[i])) frontier[live++] = frontier[i];
+        }
+        frontierLength = live;
+        if (frontierLength * 2 > frontier.length) frontier = Arrays.copyOf(frontier, frontier.length * 2);
+    }
+
+
+    // No move is proven. Picks the closed cell least likely to be a bomb by a simple local estimate:
+    // next to the number with the lowest share of bombs among its unresolved neighbors, or far from every number
+    // if the average density of the rest of the board is lower.
+    private MoveResult guess()
+    {
+        int cell = pickGuess();
+        int row = cell / size;
+        int col = cell % size;
+
+        guesses++;
+        lastMoveGuess = true;
+
+        // Every unresolved cell is flagged by the player; remove one flag to go on.
+        if (board.isFlagged(row, col)) return engine.flag(row, col);
+        return engine.reveal(row, col);
+    }
+
+
+    private int pickGuess()
+    {
+        int best = -1;
+        double bestRisk = 2;
+
+        // The number whose unresolved neighbors hold the lowest share of bombs.
+        int safestNumber = -1;
+        double numberRisk = 2;
+        for (int i = 0; i < frontierLength; i++)
+        {
+            int cell = frontier[i];
+            if (!isSet(frontierBits, cell)) continue;
+
+            int count = collect(cell, cellsA);
+            if (count == 0) continue;
+
+            double risk = (double) bombsLeft / count;
+            if (risk < numberRisk)
+            {
+                numberRisk = risk;
+                safestNumber = cell;
+            }
+        }
+
+        // Among its unresolved neighbors, the one whose riskiest number is the least risky.
+        if (safestNumber >= 0)
+        {
+            int count = collect(safestNumber, cellsA);
+            for (int i = 0; i < count; i++)
+            {
+                int cell = cellsA[i];
+                if (board.isFlagged(cell / size, cell % size)) continue;
+
+                double risk = worstNumberRisk(cell);
+                if (risk < bestRisk)
+                {
+                    bestRisk = risk;
+                    best = cell;
+                }
+            }
+        }
+
+        // A cell away from every number, if the bombs nobody has found yet are spread more thinly than that.
+        int interior = nextInteriorCell();
+        if (interior >= 0)
+        {
+            double interiorRisk = (double) (engine.getNumBombs() - knownBombs) / unresolved;
+            if (best < 0 || interiorRisk < bestRisk) best = interior;
+        }
+
+        if (best >= 0) return best;
+
+        // Only cells the player flagged are left, or every candidate is flagged: take any unresolved cell.
+        for (int cell = 0; cell < size * size; cell++)
+        {
+            if (!board.isRevealed(cell / size, cell % size) && !isSet(bombs, cell) && !isSet(safe, cell)) return cell;
+        }
+        throw new IllegalStateException("No closed cell left to guess");
+    }
+
+
+    // The highest share of bombs among unresolved cells of any number next to the cell.
+    private double worstNumberRisk(int cell)
+    {
+        int row = cell / size;
+        int col = cell % size;
+        double worst = 0;
+
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, size - 1); r++)
+        {
+            for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, size - 1); c++)
+            {
+                if (!board.isRevealed(r, c) || board.getCount(r, c) == 0) continue;
+
+                int count = collect(r * size + c, cellsB);
+                if (count > 0) worst = Math.max(worst, (double) bombsLeft / count);
+            }
+        }
+        return worst;
+    }
+
+
+    // The first closed, unresolved, unflagged cell with no revealed neighbor, or -1 if there is none.
+    // Once a cell fails these tests it never passes them again (flags aside), so the search never goes back.
+    private int nextInteriorCell()
+    {
+        int cells = size * size;
+        for (; interiorCursor < cells; interiorCursor++)
+        {
+            int cell = interiorCursor;
+            int row = cell / size;
+            int col = cell % size;
+            if (board.isRevealed(row, col) || board.isFlagged(row, col) || isSet(bombs, cell) || isSet(safe, cell)) continue;
+            if (!hasRevealedNeighbor(row, col)) return cell;
+        }
+        return -1;
+    }
+
+
+    private boolean hasRevealedNeighbor(int row, int col)
+    {
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, size - 1); r++)
+        {
+            for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, size - 1); c++)
+            {
+                if (board.isRevealed(r, c)) return true;
+            }
+        }
+        return false;
+    }
+
+
+    private static boolean isSet(long[] bits, int cell)
+    {
+        return (bits[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+
+    private static void set(long[] bits, int cell)
+    {
+        bits[cell >>> 6] |= 1L << cell;
+    }
+
+
+    private static void clear(long[] bits, int cell)
+    {
+        bits[cell >>> 6] &= ~(1L << cell);
+    }
+}
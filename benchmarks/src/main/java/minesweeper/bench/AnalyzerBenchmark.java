@@ -0,0 +1,56 @@
+package minesweeper.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Time to analyze one board (3BV, openings, islands and forced guesses), board generation included.
+// Every call analyzes the next board of a fixed seed, so the result is the average over many boards,
+// like in the batch mode. The sizes are the preset levels and one bigger board; the solver plays every
+// board to the end, which makes huge boards too slow to measure this way.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AnalyzerBenchmark
+{
+    @Param({"9", "16", "24", "64"})
+    public int size;
+
+    // Share of the cells that hold a bomb. Easy is about 0.12, Hard about 0.16.
+    @Param({"0.05", "0.15", "0.30"})
+    public double density;
+
+    private Object analyzer;
+    private int numBombs;
+    private long boardSeed;
+
+
+    @Setup(Level.Trial)
+    public void setUpAnalyzer()
+    {
+        numBombs = Math.max(1, (int) ((double) size * size * density));
+        analyzer = Game.newAnalyzer();
+        boardSeed = 42;
+    }
+
+
+    @Benchmark
+    public Object analyze()
+    {
+        return Game.analyze(analyzer, size, numBombs, boardSeed++, -1, -1);
+    }
+}
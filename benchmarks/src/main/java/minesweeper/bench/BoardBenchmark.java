@@ -0,0 +1,181 @@
+package minesweeper.bench;
+
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Benchmarks for the board hot paths: generating a board, counting neighbors, the flood fill,
+// the win check and both board printers. Every path runs on every board size and bomb density.
+// The printers draw into a channel that throws the bytes away, so no terminal speed is measured.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark
+{
+    // From the Easy board up to a board with 16M cells.
+    @Param({"9", "64", "512", "4096"})
+    public int size;
+
+    // Share of the cells that hold a bomb. Easy is about 0.12, Hard about 0.16.
+    @Param({"0.05", "0.15", "0.30"})
+    public double density;
+
+    private Object engine;
+    private Object board;
+    private Object renderer;
+
+    // An empty cell to start the flood fill from (the one with the biggest opening found).
+    private int openRow;
+    private int openCol;
+
+
+    @Setup(Level.Trial)
+    public void setUpBoard()
+    {
+        int numBombs = Math.max(1, (int) ((double) size * size * density));
+
+        engine = Game.newEngine(42);
+        Game.newGame(engine, size, numBombs, 0);
+        board = Game.getBoard(engine);
+
+        WritableByteChannel nullSink = Channels.newChannel(OutputStream.nullOutputStream());
+        renderer = Game.newRenderer(nullSink);
+
+        findOpening();
+    }
+
+
+    // The flood fill changes the player's view, so it is closed again before every call.
+    // Kept in its own state so only the flood fill pays for the per-call setup.
+    @State(Scope.Thread)
+    public static class ClosedView
+    {
+        @Setup(Level.Invocation)
+        public void closeCells(BoardBenchmark benchmark)
+        {
+            Game.setUserViewBoard(benchmark.engine);
+        }
+    }
+
+
+    @Benchmark
+    public void setBoardData()
+    {
+        Game.setBoardData(engine);
+    }
+
+
+    // Clearing the bombs first is part of the measured time; it touches one bit per cell.
+    @Benchmark
+    public void placeBombs()
+    {
+        Game.clearBombs(board);
+        Game.placeBombs(engine);
+    }
+
+
+    // "countBomb" on every cell of the board.
+    @Benchmark
+    public int countBomb()
+    {
+        int total = 0;
+        for (int i = 0; i < size; i++)
+        {
+            for (int j = 0; j < size; j++)
+            {
+                total += Game.countBomb(engine, i, j);
+            }
+        }
+        return total;
+    }
+
+
+    @Benchmark
+    public int uncoverNeighbors(ClosedView view)
+    {
+        return Game.uncoverNeighbors(engine, openRow, openCol);
+    }
+
+
+    @Benchmark
+    public boolean isPlayerWin()
+    {
+        return Game.isPlayerWin(engine);
+    }
+
+
+    @Benchmark
+    public void printUserViewBoard()
+    {
+        Game.renderUserView(renderer, board);
+    }
+
+
+    @Benchmark
+    public void printBoardData()
+    {
+        Game.renderBoardData(renderer, board);
+    }
+
+
+    // Picks the empty cell whose opening reveals the most cells, so the flood fill has real work to do.
+    // Each opening is filled once: cells already revealed by an earlier fill belong to a known opening.
+    // Dense boards may have no empty cell at all; the fill then reveals a single numbered cell.
+    private void findOpening()
+    {
+        openRow = -1;
+        openCol = -1;
+        int best = 0;
+
+        Game.setUserViewBoard(engine);
+        for (int i = 0; i < size; i++)
+        {
+            for (int j = 0; j < size; j++)
+            {
+                if (Game.isBomb(board, i, j)) continue;
+
+                // Remember the first safe cell in case there is no empty one.
+                if (openRow < 0)
+                {
+                    openRow = i;
+                    openCol = j;
+                }
+
+                if (Game.getCount(board, i, j) != 0 || Game.isRevealed(board, i, j)) continue;
+
+                int revealed = Game.uncoverNeighbors(engine, i, j);
+                if (revealed > best)
+                {
+                    best = revealed;
+                    openRow = i;
+                    openCol = j;
+                }
+            }
+        }
+        Game.setUserViewBoard(engine);
+
+        // A board full of bombs has nothing to reveal.
+        if (openRow < 0)
+        {
+            openRow = 0;
+            openCol = 0;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package minesweeper.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.channels.WritableByteChannel;
+
+// Calls into the game classes for the benchmarks.
+// The game lives in the default package, which code in a named package cannot import (and JMH refuses
+// benchmarks in the default package), so the classes are looked up by name once.
+// The handles are static finals, which lets the JIT inline calls through them like direct calls.
+final class Game
+{
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final Class<?> ENGINE = load("GameEngine");
+    private static final Class<?> BOARD = load("Board");
+    private static final Class<?> RENDERER = load("FrameRenderer");
+    private static final Class<?> ANALYZER = load("BoardAnalyzer");
+    private static final Class<?> REPORT = load("BoardAnalyzer$Report");
+
+    private static final MethodHandle NEW_ENGINE = constructor(ENGINE, long.class);
+    private static final MethodHandle NEW_RENDERER = constructor(RENDERER, WritableByteChannel.class,
+            char.class, char.class, char.class, char.class);
+    private static final MethodHandle NEW_ANALYZER = constructor(ANALYZER);
+
+    private static final MethodHandle NEW_GAME = method(ENGINE, "newGame", void.class, int.class, int.class, int.class);
+    private static final MethodHandle GET_BOARD = method(ENGINE, "getBoard", BOARD);
+    private static final MethodHandle SET_USER_VIEW_BOARD = method(ENGINE, "setUserViewBoard", void.class);
+    private static final MethodHandle SET_BOARD_DATA = method(ENGINE, "setBoardData", void.class);
+    private static final MethodHandle PLACE_BOMBS = method(ENGINE, "placeBombs", void.class);
+    private static final MethodHandle COUNT_BOMB = method(ENGINE, "countBomb", int.class, int.class, int.class);
+    private static final MethodHandle UNCOVER_NEIGHBORS = method(ENGINE, "uncoverNeighbors", int.class, int.class, int.class);
+    private static final MethodHandle IS_PLAYER_WIN = method(ENGINE, "isPlayerWin", boolean.class);
+
+    private static final MethodHandle CLEAR_BOMBS = method(BOARD, "clearBombs", void.class);
+    private static final MethodHandle IS_BOMB = method(BOARD, "isBomb", boolean.class, int.class, int.class);
+    private static final MethodHandle IS_REVEALED = method(BOARD, "isRevealed", boolean.class, int.class, int.class);
+    private static final MethodHandle GET_COUNT = method(BOARD, "getCount", int.class, int.class, int.class);
+
+    private static final MethodHandle RENDER_USER_VIEW = method(RENDERER, "renderUserView", void.class, BOARD);
+    private static final MethodHandle RENDER_BOARD_DATA = method(RENDERER, "renderBoardData", void.class, BOARD);
+
+    private static final MethodHandle ANALYZE = method(ANALYZER, "analyze", REPORT, int.class, int.class, long.class, int.class, int.class);
+
+
+    private Game()
+    {
+    }
+
+
+    static Object newEngine(long seed)
+    {
+        try
+        {
+            return NEW_ENGINE.invokeExact(seed);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+
+    // A renderer with the game's default symbols, drawing into the given channel.
+    static Object newRenderer(WritableByteChannel out)
+    {
+        try
+        {
+            return NEW_RENDERER.invokeExact(out, '-', '.', '*', 'F');
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+
+    static Object newAnalyzer()
+    {
+        try
+        {
+            return NEW_ANALYZER.invokeExact();
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+
+    static void newGame(Object engine, int size, int numBombs, int revealBoosts)
+    {
+        try
+        {
+            NEW_GAME.invokeExact(engine, size, numBombs, revealBoosts);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+
+    static Object getBoard(Object engine)
+    {
+        try
+        {
+            return GET_BOARD.invokeExact(engine);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+
+    static void setUserViewBoard(Object engine)
+    {
+        try
+        {
+            SET_USER_VIEW_BOARD.invokeExact(engine);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+
+    static void setBoardData(Object engine)
+    {
+        try
+        {
+            SET_BOARD_DATA.invokeExact(engine);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+
+    static void placeBombs(Object engine)
+    {
+        try
+        {
+            PLACE_BOMBS.invokeExact(engine);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+
+    static int countBomb(Object engine, int row, int col)
+    {
+        try
+        {
+            return (int) COUNT_BOMB.invokeExact(engine, row, col);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+
+    static int uncoverNeighbors(Object engine, int row, int col)
+    {
+        try
+        {
+            return (int) UNCOVER_NEIGHBORS.invokeExact(engine, row, col);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+
+    static boolean isPlayerWin(Object engine)
+    {
+        try
+        {
+            return (boolean) IS_PLAYER_WIN.invokeExact(engine);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+
+    static void clearBombs(Object board)
+    {
+        try
+        {
+            CLEAR_BOMBS.invokeExact(board);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+
+    static boolean isBomb(Object board, int row, int col)
+    {
+        try
+        {
+            return (boolean) IS_BOMB.invokeExact(board, row, col);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+
+    static boolean isRevealed(Object board, int row, int col)
+    {
+        try
+        {
+            return (boolean) IS_REVEALED.invokeExact(board, row, col);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+
+    static int getCount(Object board, int row, int col)
+    {
+        try
+        {
+            return (int) GET_COUNT.invokeExact(board, row, col);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+
+    static void renderUserView(Object renderer, Object board)
+    {
+        try
+        {
+            RENDER_USER_VIEW.invokeExact(renderer, board);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+
+    static void renderBoardData(Object renderer, Object board)
+    {
+        try
+        {
+            RENDER_BOARD_DATA.invokeExact(renderer, board);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+
+    static Object analyze(Object analyzer, int size, int numBombs, long boardSeed, int startRow, int startCol)
+    {
+        try
+        {
+            return ANALYZE.invokeExact(analyzer, size, numBombs, boardSeed, startRow, startCol);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+
+    private static Class<?> load(String name)
+    {
+        try
+        {
+            return Class.forName(name, true, Game.class.getClassLoader());
+        }
+        catch (ClassNotFoundException e)
+        {
+            throw new IllegalStateException("Game class " + name + " is missing from the benchmark jar", e);
+        }
+    }
+
+
+    // Looks up a constructor, typed to return a plain Object so "invokeExact" can be called without the class.
+    private static MethodHandle constructor(Class<?> type, Class<?>... parameters)
+    {
+        try
+        {
+            MethodHandle handle = LOOKUP.findConstructor(type, MethodType.methodType(void.class, parameters));
+            return handle.asType(handle.type().changeReturnType(Object.class));
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException("Missing constructor on " + type.getName(), e);
+        }
+    }
+
+
+    // Looks up an instance method, with the receiver and any game-class types erased to Object.
+    private static MethodHandle method(Class<?> type, String name, Class<?> returnType, Class<?>... parameters)
+    {
+        try
+        {
+            MethodHandle handle = LOOKUP.findVirtual(type, name, MethodType.methodType(returnType, parameters));
+            MethodType erased = handle.type().changeParameterType(0, Object.class);
+            for (int i = 1; i < erased.parameterCount(); i++)
+            {
+                if (!erased.parameterType(i).isPrimitive()) erased = erased.changeParameterType(i, Object.class);
+            }
+            if (!returnType.isPrimitive()) erased = erased.changeReturnType(Object.class);
+            return handle.asType(erased);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException("Missing method " + type.getName() + '.' + name, e);
+        }
+    }
+
+
+    private static RuntimeException rethrow(Throwable t)
+    {
+        if (t instanceof RuntimeException) return (RuntimeException) t;
+        if (t instanceof Error) throw (Error) t;
+        return new IllegalStateException(t);
+    }
+}